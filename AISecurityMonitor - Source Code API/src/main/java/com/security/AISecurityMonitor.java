@@ -6,43 +6,133 @@ import com.security.services.ml.*;
 import com.security.services.api.*;
 import com.security.services.scanner.*;
 import com.security.services.database.*;
+import com.security.services.capture.*;
+import com.security.config.APIConfig;
+import com.security.services.dns.*;
+import com.security.services.process.*;
+import com.security.services.pipeline.*;
+import com.security.services.load.SyntheticConnectionSource;
+import com.security.services.stream.AgentStreamer;
+import com.security.services.intel.LocalIntelService;
+import com.security.services.metrics.ConnectionScoredEvent;
+import com.security.services.metrics.LatencyHistogram;
+import com.security.services.metrics.MetricsRegistry;
+import com.security.services.metrics.MetricsServer;
+import com.security.utils.IpRangeClassifier;
+import com.security.utils.RingBuffer;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 
 public class AISecurityMonitor {
     private static AISecurityMonitor instance;
     
     // Services
     private NetworkScannerService networkScanner;
+    private volatile ConnectionSource connectionSource;
     private ThreatDetectionService threatDetector;
     private FirewallService firewallService;
     private MLThreatDetectionService mlDetector;
     private APIIntegrationService apiService;
+    private LocalIntelService localIntel;
     private AdvancedPortScanner portScanner;
     private DatabaseService databaseService;
+    private HostnameResolverService hostnameResolver;
+    private PassiveDnsObserver passiveDns;
+    private ProcessIndexService processIndex;
+    private PacketCaptureService packetCapture;
+    private AdmissionController admission;
+    private AnalysisPipeline pipeline;
+    private MetricsServer metricsServer;
+    private volatile AgentStreamer agentStreamer;
+    private AlertAggregator alertAggregator;
+    
+    // Metrics
+    private final LatencyHistogram collectConnectionsLatency = MetricsRegistry.getInstance().histogram("collect.connections");
+    private final LatencyHistogram collectDevicesLatency = MetricsRegistry.getInstance().histogram("collect.devices");
+    private final LatencyHistogram basicScoreLatency = MetricsRegistry.getInstance().histogram("score.basic");
+    private final LatencyHistogram featuresLatency = MetricsRegistry.getInstance().histogram("score.features");
+    private final LatencyHistogram mlScoreLatency = MetricsRegistry.getInstance().histogram("score.ml");
+    private final LongAdder connectionsCollected = MetricsRegistry.getInstance().counter("connections.collected");
+    private final LongAdder connectionsScored = MetricsRegistry.getInstance().counter("connections.scored");
     
     // State
     private volatile boolean isMonitoring = false;
-    private ScheduledExecutorService scheduler;
+    private volatile boolean isolated = false;
+    private MonitoringScheduler scheduler;
     private Set<String> blockedIPs;
-    private List<ConnectionData> recentConnections;
+    private RingBuffer<ConnectionData> recentConnections;
+    private TrafficWindowStats trafficStats;
+    private IpRangeClassifier ipClassifier;
     private Map<String, DeviceInfo> networkDevices;
     private Map<String, Map<String, Object>> threatIntelligenceCache;
+    private Set<String> lastConnectionKeys = Collections.emptySet();
+    private volatile Map<String, Integer> statistics;
     
     private AISecurityMonitor() {
-        this.networkScanner = new NetworkScannerService();
+        this.hostnameResolver = new HostnameResolverService();
+        this.networkScanner = new NetworkScannerService(hostnameResolver);
+        this.connectionSource = "synthetic".equalsIgnoreCase(APIConfig.getInstance().getConnectionSource())
+            ? new SyntheticConnectionSource() : networkScanner;
+        this.processIndex = new ProcessIndexService();
+        this.passiveDns = new PassiveDnsObserver();
+        this.packetCapture = new PacketCaptureService(passiveDns);
         this.threatDetector = new ThreatDetectionService();
         this.firewallService = new FirewallService();
         this.mlDetector = new MLThreatDetectionService();
         this.apiService = new APIIntegrationService();
+        this.localIntel = LocalIntelService.getInstance();
         this.portScanner = new AdvancedPortScanner();
+        if (connectionSource instanceof SyntheticConnectionSource) {
+            isolate();
+            try {
+                APIConfig.getInstance().defaultToScratchDatabase();
+            } catch (IOException e) {
+                throw new IllegalStateException("No scratch database for synthetic connections: " + e.getMessage(), e);
+            }
+        }
         this.databaseService = new DatabaseService();
         
+        // Past threats are known bad: they keep getting remote lookups, other IPs mostly don't
+        apiService.getIntelGate().addKnownBad(databaseService.getThreatSourceIPs());
+        
         this.blockedIPs = ConcurrentHashMap.newKeySet();
-        this.recentConnections = new CopyOnWriteArrayList<>();
+        this.recentConnections = new RingBuffer<>(APIConfig.getInstance().getHistoryCapacity());
+        this.trafficStats = new TrafficWindowStats();
+        this.ipClassifier = IpRangeClassifier.getInstance();
         this.networkDevices = new ConcurrentHashMap<>();
         this.threatIntelligenceCache = new ConcurrentHashMap<>();
-        this.scheduler = Executors.newScheduledThreadPool(2); // Increased pool size
+        this.admission = new AdmissionController(threatDetector, blockedIPs);
+        this.alertAggregator = new AlertAggregator(databaseService, APIConfig.getInstance().getAlertWindowMillis());
+        this.pipeline = new AnalysisPipeline(this::enrichConnection, this::scoreConnection,
+                                             this::handleThreat, this::persistConnections);
+        
+        // Agent mode: also stream scored connections and threats to a central collector
+        APIConfig config = APIConfig.getInstance();
+        if (!config.getAgentCollector().isEmpty() && !isolated) {
+            agentStreamer = new AgentStreamer(config.getAgentCollector(), agentName(config));
+            agentStreamer.start();
+            alertAggregator.setUpdateListener(agentStreamer::offerThreat);
+        }
+        
+        // Device discovery, connection polling and stats refresh each run on their own cadence
+        this.scheduler = new MonitoringScheduler();
+        scheduler.register("devices", config.getDeviceScanIntervalMillis(), this::discoverDevices);
+        scheduler.register("connections", config.getConnectionPollIntervalMillis(), this::pollConnections);
+        scheduler.register("stats", config.getStatsRefreshIntervalMillis(), this::refreshStatistics);
+        scheduler.register("alerts", config.getAlertFlushIntervalMillis(), this::flushAlerts);
+        
+        MetricsRegistry.getInstance().gauge("blocked.ips", blockedIPs::size);
+        if (config.isMetricsEnabled()) {
+            try {
+                metricsServer = new MetricsServer(config.getMetricsBindAddress(), config.getMetricsPort(),
+                                                  MetricsRegistry.getInstance());
+                metricsServer.start();
+            } catch (IOException e) {
+                System.err.println("Metrics endpoint not started: " + e.getMessage());
+            }
+        }
     }
     
     public static synchronized AISecurityMonitor getInstance() {
@@ -57,111 +147,215 @@ public class AISecurityMonitor {
             isMonitoring = true;
             System.out.println("AI Security Monitor started...");
             
-            // Recreate scheduler if it was shutdown
-            if (scheduler.isShutdown()) {
-                scheduler = Executors.newScheduledThreadPool(2);
+            // Real byte/duration features for the ML model, if libpcap/Npcap is available
+            if (APIConfig.getInstance().isCaptureEnabled()) {
+                packetCapture.start();
             }
             
-            // Start monitoring with scheduled executor
-            scheduler.scheduleAtFixedRate(() -> {
-                if (isMonitoring) {
-                    monitorNetwork();
-                }
-            }, 0, 5, TimeUnit.SECONDS);
+            scheduler.start();
         }
     }
     
     public void stopMonitoring() {
         isMonitoring = false;
+        packetCapture.stop();
+        scheduler.stop(0);
         System.out.println("AI Security Monitor stopped...");
-        // Don't shutdown scheduler here, just stop scheduling new tasks
     }
     
     public void shutdown() {
         isMonitoring = false;
-        if (scheduler != null && !scheduler.isShutdown()) {
-            scheduler.shutdown();
-            try {
-                if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
-                    scheduler.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                scheduler.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
+        packetCapture.stop();
+        scheduler.stop(5000);
+        // Flush queued firewall actions and database writes before closing the database
+        pipeline.shutdown();
+        alertAggregator.close();
+        AgentStreamer streamer = agentStreamer;
+        if (streamer != null) {
+            streamer.close(5000);
         }
         databaseService.close();
         apiService.close();
+        hostnameResolver.close();
+        if (metricsServer != null) {
+            metricsServer.stop();
+        }
     }
     
-    private void monitorNetwork() {
-        try {
-            System.out.println("Scanning network...");
-            
-            // 1. Scan for network devices
-            Map<String, DeviceInfo> devices = networkScanner.scanNetworkDevices();
-            networkDevices.clear();
-            networkDevices.putAll(devices);
-            
-            System.out.println("Found " + devices.size() + " devices");
-            
-            // 2. Get current connections
-            List<ConnectionData> connections = networkScanner.scanConnections();
-            
-            System.out.println("Found " + connections.size() + " connections");
-            
-            // 3. Analyze connections with ML and API
-            int suspiciousCount = 0;
-            int maliciousCount = 0;
-            
-            for (ConnectionData conn : connections) {
-                analyzeConnection(conn);
-                
-                if ("SUSPICIOUS".equals(conn.getStatus())) {
-                    suspiciousCount++;
-                } else if ("MALICIOUS".equals(conn.getStatus())) {
-                    maliciousCount++;
-                }
+    // Scheduled tasks return churn: the share of devices/connections that changed since last run
+    private double discoverDevices() {
+        if (!isMonitoring || isolated) {
+            return -1;
+        }
+        System.out.println("Scanning network...");
+        long start = System.nanoTime();
+        Map<String, DeviceInfo> devices = networkScanner.scanNetworkDevices();
+        collectDevicesLatency.recordSince(start);
+        double churn = churn(networkDevices.keySet(), devices.keySet());
+        networkDevices.keySet().retainAll(devices.keySet());
+        networkDevices.putAll(devices);
+        
+        System.out.println("Found " + devices.size() + " devices");
+        return churn;
+    }
+    
+    private double pollConnections() {
+        if (!isMonitoring) {
+            return -1;
+        }
+        long start = System.nanoTime();
+        List<ConnectionData> connections = connectionSource.scanConnections();
+        processIndex.attachProcesses(connections);
+        collectConnectionsLatency.recordSince(start);
+        connectionsCollected.add(connections.size());
+        
+        System.out.println("Found " + connections.size() + " connections");
+        
+        Set<String> keys = new HashSet<>();
+        for (ConnectionData conn : connections) {
+            keys.add(conn.getLocalIP() + ":" + conn.getLocalPort() + "-" + conn.getRemoteIP() + ":" + conn.getRemotePort());
+        }
+        double churn = churn(lastConnectionKeys, keys);
+        lastConnectionKeys = keys;
+        
+        // Analyze connections with ML and API
+        analyzeConnections(connections);
+        return churn;
+    }
+    
+    private double flushAlerts() {
+        alertAggregator.flush();
+        return -1;
+    }
+    
+    private double refreshStatistics() {
+        statistics = databaseService.getThreatStatistics();
+        return -1;
+    }
+    
+    private static double churn(Set<String> before, Set<String> after) {
+        if (before.isEmpty() && after.isEmpty()) {
+            return 0;
+        }
+        int changed = 0;
+        for (String key : after) {
+            if (!before.contains(key)) {
+                changed++;
             }
-            
-            if (suspiciousCount > 0 || maliciousCount > 0) {
-                System.out.println("Detected " + suspiciousCount + " suspicious and " + 
-                                 maliciousCount + " malicious connections");
+        }
+        for (String key : before) {
+            if (!after.contains(key)) {
+                changed++;
             }
-            
-        } catch (Exception e) {
-            System.err.println("Error in monitorNetwork: " + e.getMessage());
-            e.printStackTrace();
         }
+        return (double) changed / (before.size() + after.size());
     }
     
-    private void analyzeConnection(ConnectionData connection) {
+    // Shared by live polling and pcap replay. Returns once every connection is scored;
+    // firewall actions and database writes finish in the background.
+    public void analyzeConnections(List<ConnectionData> connections) {
+        // Under overload, low-value connections are sampled or dropped so a run stays in budget
+        AdmissionController.Run run = admission.begin(connections);
         try {
-            // Skip loopback and local connections for demo
-            if (connection.getRemoteIP().equals("0.0.0.0") || 
-                connection.getRemoteIP().equals("127.0.0.1") ||
-                connection.getRemoteIP().startsWith("192.168.") ||
-                connection.getRemoteIP().startsWith("10.") ||
-                connection.getRemoteIP().startsWith("172.")) {
-                // These are internal IPs, give them lower scores
-                connection.setThreatScore(10.0 + new Random().nextDouble() * 20);
-                connection.setStatus("NORMAL");
-                return;
+            pipeline.submit(run).await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            run.end();
+        }
+        
+        int suspiciousCount = 0;
+        int maliciousCount = 0;
+        for (ConnectionData conn : run.getConnections()) {
+            if ("SUSPICIOUS".equals(conn.getStatus())) {
+                suspiciousCount++;
+            } else if ("MALICIOUS".equals(conn.getStatus())) {
+                maliciousCount++;
             }
-            
+        }
+        
+        if (suspiciousCount > 0 || maliciousCount > 0) {
+            System.out.println("Detected " + suspiciousCount + " suspicious and " + 
+                             maliciousCount + " malicious connections");
+        }
+        if (run.getDropped() > 0) {
+            System.out.println("Admission: skipped " + run.getDropped() + " connections this run, " +
+                             admission.getStatistics());
+        }
+    }
+    
+    // Pipeline enrich stage. Returns false if the connection needs no scoring.
+    private boolean enrichConnection(ConnectionData connection) {
+        // Skip loopback, private and other non-routable addresses, and the user's allowlist
+        int ipClass = ipClassifier.classify(connection.getRemoteIP());
+        if ((ipClass & IpRangeClassifier.DENYLIST) == 0 &&
+            (ipClass & (IpRangeClassifier.LOCAL | IpRangeClassifier.ALLOWLIST)) != 0) {
+            // These are internal IPs, give them lower scores
+            connection.setThreatScore(10.0 + ThreadLocalRandom.current().nextDouble() * 20);
+            connection.setStatus("NORMAL");
+            return false;
+        }
+        
+        // Enrichment (cached or placeholder, never waits on DNS)
+        if (connection.getFlowStats() == null && packetCapture.isRunning()) {
+            connection.setFlowStats(packetCapture.lookup(connection));
+        }
+        connection.setRemoteDomain(passiveDns.lookup(connection.getRemoteIP()));
+        if (connection.getRemoteDomain() == null && connection.getFlowStats() != null &&
+            connection.getFlowStats().getTls() != null) {
+            // No DNS answer seen (cached by the OS or DoH); the SNI names the site instead
+            connection.setRemoteDomain(connection.getFlowStats().getTls().getServerName());
+        }
+        if (!isolated) {
+            connection.setRemoteHostname(hostnameResolver.resolve(connection.getRemoteIP()));
+        }
+        
+        List<String> lists = localIntel.lookup(connection.getRemoteIP());
+        if (lists != null) {
+            connection.setIntelMatch(String.join(",", lists));
+        }
+        
+        // Remote intel only for IPs the gate cannot rule out as clean, and only once it is cached
+        Map<String, Object> intel = isolated ? null : apiService.getGatedThreatIntelligence(connection.getRemoteIP());
+        if (intel != null) {
+            connection.setIntelScore(((Number) intel.getOrDefault("combined_threat_score", 0.0)).doubleValue());
+        }
+        return true;
+    }
+    
+    // Pipeline score stage; threats are acted on and everything is persisted by later stages
+    private void scoreConnection(ConnectionData connection) {
+        ConnectionScoredEvent event = new ConnectionScoredEvent();
+        event.begin();
+        try {
             // Basic analysis
+            long start = System.nanoTime();
             double basicScore = threatDetector.analyze(connection);
+            basicScoreLatency.recordSince(start);
             
             // ML analysis
+            start = System.nanoTime();
             Map<String, Object> features = extractFeatures(connection);
+            featuresLatency.recordSince(start);
+            start = System.nanoTime();
             double mlScore = mlDetector.analyzeWithML(connection, features);
+            mlScoreLatency.recordSince(start);
             
             // Calculate final score
             double finalScore = (basicScore * 0.6) + (mlScore * 0.4);
             
+            // Listed on a local blocklist or rated high by remote intel: at least that score
+            if (connection.getIntelMatch() != null) {
+                finalScore = Math.max(finalScore, localIntel.getListedScore());
+            }
+            if (connection.getIntelScore() >= 50) {
+                finalScore = Math.max(finalScore, connection.getIntelScore());
+            }
+            
             // For demo purposes, make some external IPs appear malicious
             if (shouldSimulateThreat(connection.getRemoteIP())) {
-                finalScore = 70.0 + new Random().nextDouble() * 30;
+                finalScore = 70.0 + ThreadLocalRandom.current().nextDouble() * 30;
             }
             
             connection.setThreatScore(finalScore);
@@ -169,28 +363,31 @@ public class AISecurityMonitor {
             // Determine status
             if (finalScore > 80) {
                 connection.setStatus("MALICIOUS");
-                handleThreat(connection);
             } else if (finalScore > 60) {
                 connection.setStatus("SUSPICIOUS");
             } else {
                 connection.setStatus("NORMAL");
             }
-            
-            // Log to database
-            databaseService.logConnection(connection);
+            admission.recordResult(connection);
+            connectionsScored.increment();
+            if (event.shouldCommit()) {
+                event.remoteIP = connection.getRemoteIP();
+                event.remotePort = connection.getRemotePort();
+                event.basicScore = basicScore;
+                event.mlScore = mlScore;
+                event.finalScore = finalScore;
+                event.status = connection.getStatus();
+                event.commit();
+            }
             
             // Store connection
             recentConnections.add(connection);
-            if (recentConnections.size() > 100) {
-                recentConnections.remove(0);
-            }
             
             // Print for debugging (only external IPs with higher scores)
-            if (!connection.getRemoteIP().startsWith("192.168.") && 
-                !connection.getRemoteIP().equals("127.0.0.1") &&
-                !connection.getRemoteIP().equals("0.0.0.0")) {
+            if (!ipClassifier.isLocal(connection.getRemoteIP())) {
                 System.out.println("Connection: " + connection.getRemoteIP() + 
                                  ":" + connection.getRemotePort() +
+                                 (connection.getRemoteName() != null ? " (" + connection.getRemoteName() + ")" : "") +
                                  " Score: " + String.format("%.1f", finalScore) + 
                                  " Status: " + connection.getStatus());
             }
@@ -200,6 +397,26 @@ public class AISecurityMonitor {
         }
     }
     
+    // Pipeline persist stage: the local database, and the collector in agent mode
+    private void persistConnections(List<ConnectionData> connections) {
+        databaseService.logConnections(connections);
+        AgentStreamer streamer = agentStreamer;
+        if (streamer != null) {
+            streamer.offerAll(connections);
+        }
+    }
+    
+    private static String agentName(APIConfig config) {
+        if (!config.getAgentName().isEmpty()) {
+            return config.getAgentName();
+        }
+        try {
+            return java.net.InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            return "agent-" + ProcessHandle.current().pid();
+        }
+    }
+    
     private boolean shouldSimulateThreat(String ip) {
         // For demo: make some IPs appear as threats
         String[] demoThreatIPs = {
@@ -208,7 +425,7 @@ public class AISecurityMonitor {
         
         for (String threatIP : demoThreatIPs) {
             if (ip.equals(threatIP)) {
-                return new Random().nextInt(10) < 3; // 30% chance
+                return ThreadLocalRandom.current().nextInt(10) < 3; // 30% chance
             }
         }
         return false;
@@ -217,49 +434,50 @@ public class AISecurityMonitor {
     private Map<String, Object> extractFeatures(ConnectionData connection) {
         Map<String, Object> features = new HashMap<>();
         
-        // Simulate some features
-        Random rand = new Random();
-        features.put("src_bytes", rand.nextInt(10000));
-        features.put("dst_bytes", rand.nextInt(10000));
-        features.put("duration", rand.nextInt(100));
-        
-        // Calculate connection patterns
-        long similarConnections = recentConnections.stream()
-            .filter(c -> c.getRemoteIP().equals(connection.getRemoteIP()))
-            .count();
+        // Byte and duration features come from passive capture; unknown flows stay at 0
+        FlowStats flow = connection.getFlowStats();
+        if (flow != null) {
+            features.put("src_bytes", (double) flow.getSrcBytes());
+            features.put("dst_bytes", (double) flow.getDstBytes());
+            features.put("duration", flow.getDurationMillis() / 1000.0);
+        }
         
-        features.put("count", (double) similarConnections);
-        features.put("srv_count", 1.0);
-        features.put("same_srv_rate", similarConnections > 0 ? 1.0 : 0.0);
+        // Connection patterns from the sliding time and count windows
+        long time = connection.getTimestamp() != null ? connection.getTimestamp().getTime() : System.currentTimeMillis();
+        trafficStats.observe(connection.getRemoteIP(), connection.getRemotePort(), time, features);
         
         return features;
     }
     
     private void handleThreat(ConnectionData threat) {
-        System.out.println("🚨 THREAT DETECTED: " + threat);
+        apiService.getIntelGate().addKnownBad(threat.getRemoteIP());
         
-        // Log threat to database
-        databaseService.logThreat(
-            "Suspicious Connection",
-            threat.getRemoteIP(),
-            threat.getLocalIP(),
-            "High threat score connection detected: " + threat.getThreatScore() + 
-            " on port " + threat.getRemotePort(),
-            (int) threat.getThreatScore(),
-            "Analyzed"
-        );
+        // Log threat to database, once per incident; repeats within the window only count
+        String description = "High threat score connection detected: " + threat.getThreatScore() + 
+                             " on port " + threat.getRemotePort();
+        ThreatEvent alert = new ThreatEvent(System.currentTimeMillis(), "Suspicious Connection",
+                                            threat.getRemoteIP(), threat.getLocalIP(), description,
+                                            (int) threat.getThreatScore(), "Analyzed");
+        if (alertAggregator.record(alert)) {
+            System.out.println("🚨 THREAT DETECTED: " + threat);
+            AgentStreamer streamer = agentStreamer;
+            if (streamer != null) {
+                streamer.offerThreat(alert);
+            }
+        }
         
-        // Auto-block if score > 90
-        if (threat.getThreatScore() > 90) {
+        // Auto-block if score > 90, once per IP (add() claims it against concurrent act threads)
+        if (threat.getThreatScore() > 90 && blockedIPs.add(threat.getRemoteIP())) {
             boolean blocked = firewallService.blockIP(threat.getRemoteIP());
-            if (blocked) {
-                blockedIPs.add(threat.getRemoteIP());
+            if (!blocked) {
+                blockedIPs.remove(threat.getRemoteIP());
+            } else {
                 System.out.println("✅ Blocked IP: " + threat.getRemoteIP());
                 
                 // Log firewall action
                 databaseService.logFirewallAction(
                     threat.getRemoteIP(),
-                    "BLOCK",
+                    firewallService.isDryRun() ? "BLOCK_DRY_RUN" : "BLOCK",
                     "High threat score: " + threat.getThreatScore(),
                     true
                 );
@@ -270,8 +488,40 @@ public class AISecurityMonitor {
     // Getters
     public boolean isMonitoring() { return isMonitoring; }
     public Map<String, DeviceInfo> getNetworkDevices() { return networkDevices; }
-    public List<ConnectionData> getRecentConnections() { return recentConnections; }
+    public List<ConnectionData> getRecentConnections() { return recentConnections.snapshot(); }
     public Set<String> getBlockedIPs() { return blockedIPs; }
+    public FirewallService getFirewallService() { return firewallService; }
+    public ThreatDetectionService getThreatDetector() { return threatDetector; }
+    public ConnectionSource getConnectionSource() { return connectionSource; }
+    public AdmissionController getAdmissionController() { return admission; }
+    public AnalysisPipeline getPipeline() { return pipeline; }
+    public MonitoringScheduler getScheduler() { return scheduler; }
+    public PassiveDnsObserver getPassiveDnsObserver() { return passiveDns; }
+    public LocalIntelService getLocalIntel() { return localIntel; }
+    public AgentStreamer getAgentStreamer() { return agentStreamer; }
+    public AlertAggregator getAlertAggregator() { return alertAggregator; }
+    
+    // The database is already open here; a synthetic source needs db.path set beforehand
+    public void setConnectionSource(ConnectionSource connectionSource) {
+        this.connectionSource = connectionSource;
+        if (connectionSource instanceof SyntheticConnectionSource) {
+            isolate();
+        }
+    }
+    
+    // Synthetic connections must not block anything on the host, send lookups about addresses
+    // that do not exist or reach the fleet collector: the firewall runs dry, PTR, remote intel
+    // and device scans are skipped and agent streaming stops
+    private void isolate() {
+        firewallService.setDryRun(true);
+        isolated = true;
+        AgentStreamer streamer = agentStreamer;
+        if (streamer != null) {
+            alertAggregator.setUpdateListener(null);
+            agentStreamer = null;
+            streamer.close(5000);
+        }
+    }
     
     // NEW: Methods for advanced features
     public Map<String, List<AdvancedPortScanner.PortScanResult>> performPortScan(String network, int start, int end) {
@@ -282,8 +532,10 @@ public class AISecurityMonitor {
         return databaseService.getRecentThreats(50);
     }
     
+    // Refreshed by the scheduler so callers don't hold the database lock
     public Map<String, Integer> getStatistics() {
-        return databaseService.getThreatStatistics();
+        Map<String, Integer> current = statistics;
+        return current != null ? current : databaseService.getThreatStatistics();
     }
     
     public Map<String, Object> checkIPReputation(String ip) {
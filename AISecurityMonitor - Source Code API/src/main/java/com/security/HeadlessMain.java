@@ -0,0 +1,35 @@
+package com.security;
+
+import java.util.concurrent.CountDownLatch;
+
+// Server entry point: monitoring services only, no Swing/AWT. Settings come from
+// config.properties in the working directory as usual. SIGTERM/SIGINT (or Ctrl+C) run the
+// shutdown hook, which stops monitoring, drains the analysis pipeline and closes the database.
+//
+//   java -cp ai-security-2.0.0.jar com.security.HeadlessMain
+//   java -jar ai-security-2.0.0.jar --headless
+public class HeadlessMain {
+    public static void main(String[] args) throws InterruptedException {
+        // Before anything can touch AWT
+        System.setProperty("java.awt.headless", "true");
+        
+        AISecurityMonitor monitor = AISecurityMonitor.getInstance();
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("Shutting down...");
+            monitor.shutdown();
+            stopped.countDown();
+        }, "shutdown"));
+        
+        monitor.startMonitoring();
+        
+        Runtime runtime = Runtime.getRuntime();
+        long startedMillis = ProcessHandle.current().info().startInstant()
+            .map(start -> System.currentTimeMillis() - start.toEpochMilli()).orElse(-1L);
+        System.out.println("Headless monitor running (startup " + startedMillis + " ms, heap " +
+                         (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024) + " MB)");
+        
+        // The scheduler's threads are daemons; keep the JVM alive until a signal arrives
+        stopped.await();
+    }
+}
@@ -1,13 +1,72 @@
 package com.security;
 
 import com.security.services.api.APIIntegrationService;
+import com.security.services.capture.PcapReplayService;
+import com.security.services.scanner.AdvancedPortScanner;
+import com.security.services.scanner.AdvancedPortScanner.PortScanResult;
+import com.security.services.scanner.ScanCoordinator;
+import com.security.services.scanner.ScanWorker;
+import com.security.services.database.DatabaseService;
+import com.security.services.load.LoadHarness;
+import com.security.services.load.SyntheticConnectionSource;
+import com.security.services.stream.CollectorServer;
+import com.security.config.APIConfig;
 import com.security.gui.MainWindow;
 import com.formdev.flatlaf.FlatDarkLaf;
 import javax.swing.*;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException {
+        // Monitoring services only, for servers without a display
+        if (java.util.Arrays.asList(args).contains("--headless")) {
+            HeadlessMain.main(args);
+            return;
+        }
+        
+        // Offline analysis of a capture file: java -jar app.jar --replay capture.pcap [--realtime]
+        for (int i = 0; i < args.length; i++) {
+            if ("--replay".equals(args[i]) && i + 1 < args.length) {
+                boolean realTime = java.util.Arrays.asList(args).contains("--realtime");
+                System.exit(replay(args[i + 1], realTime) ? 0 : 1);
+            }
+        }
+        
+        // Synthetic load through the whole monitor, settings from load.* in config.properties:
+        //   java -jar app.jar --load-test 60
+        for (int i = 0; i < args.length; i++) {
+            if ("--load-test".equals(args[i]) && i + 1 < args.length) {
+                System.exit(loadTest(Long.parseLong(args[i + 1])) ? 0 : 1);
+            }
+        }
+        
+        // Central collector for agents (monitors with agent.collector=host:port set); it listens
+        // on stream.bind, loopback unless stream.token is set:
+        //   java -jar app.jar --collector 7500
+        for (int i = 0; i < args.length; i++) {
+            if ("--collector".equals(args[i]) && i + 1 < args.length) {
+                System.exit(runCollector(Integer.parseInt(args[i + 1])) ? 0 : 1);
+            }
+        }
+        
+        // Distributed port scan, one coordinator and any number of worker processes (the
+        // coordinator listens on scan.cluster.bind, loopback unless a token is set):
+        //   java -jar app.jar --scan-coordinator 7400 192.168.1.1-254 1-1024
+        //   java -jar app.jar --scan-worker coordinator-host:7400
+        for (int i = 0; i < args.length; i++) {
+            if ("--scan-coordinator".equals(args[i]) && i + 3 < args.length) {
+                System.exit(coordinateScan(Integer.parseInt(args[i + 1]), args[i + 2], args[i + 3]) ? 0 : 1);
+            }
+            if ("--scan-worker".equals(args[i]) && i + 1 < args.length) {
+                System.exit(runScanWorker(args[i + 1]) ? 0 : 1);
+            }
+        }
+        
         // Set up the look and feel
         try {
             UIManager.setLookAndFeel(new FlatDarkLaf());
@@ -25,6 +84,122 @@ public class Main {
         });
     }
     
+    private static boolean replay(String file, boolean realTime) {
+        AISecurityMonitor monitor = AISecurityMonitor.getInstance();
+        // Never touch the host firewall because of traffic recorded elsewhere
+        monitor.getFirewallService().setDryRun(true);
+        
+        try {
+            new PcapReplayService(monitor).replay(file, realTime);
+            return true;
+        } catch (Throwable e) {
+            // PcapNativeException for unreadable files, UnsatisfiedLinkError without libpcap/Npcap
+            System.err.println("Replay failed: " + e.getMessage());
+            return false;
+        } finally {
+            monitor.shutdown();
+        }
+    }
+    
+    private static boolean loadTest(long seconds) {
+        System.setProperty("java.awt.headless", "true");
+        // Every synthetic connection is written; unless db.path says otherwise they go to a
+        // throwaway file, never to the monitor's real database
+        try {
+            APIConfig.getInstance().defaultToScratchDatabase();
+        } catch (IOException e) {
+            System.err.println("Load test failed: no scratch database: " + e.getMessage());
+            return false;
+        }
+        AISecurityMonitor monitor = AISecurityMonitor.getInstance();
+        try {
+            new LoadHarness(monitor, new SyntheticConnectionSource()).run(seconds);
+            return true;
+        } catch (Exception e) {
+            System.err.println("Load test failed: " + e.getMessage());
+            monitor.shutdown();
+            return false;
+        }
+    }
+    
+    private static boolean runCollector(int port) throws InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        DatabaseService database = new DatabaseService();
+        CollectorServer collector = new CollectorServer(APIConfig.getInstance().getStreamBindAddress(), port, database);
+        try {
+            collector.start();
+        } catch (Exception e) {
+            System.err.println("Collector failed: " + e.getMessage());
+            database.close();
+            return false;
+        }
+        
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            collector.stop();
+            System.out.println(collector.getStatistics());
+            database.close();
+            stopped.countDown();
+        }, "shutdown"));
+        stopped.await();
+        return true;
+    }
+    
+    private static boolean coordinateScan(int port, String hosts, String ports) {
+        String[] range = ports.split("-");
+        int startPort;
+        int endPort;
+        try {
+            startPort = Integer.parseInt(range[0].trim());
+            endPort = Integer.parseInt(range[range.length - 1].trim());
+        } catch (NumberFormatException e) {
+            startPort = -1;
+            endPort = -1;
+        }
+        if (startPort < 1 || endPort > 65535 || startPort > endPort) {
+            System.err.println("Invalid port range " + ports + ": expected first-last within 1-65535");
+            return false;
+        }
+        ScanCoordinator coordinator = new ScanCoordinator(APIConfig.getInstance().getScanClusterBindAddress(), port,
+                                                          ScanCoordinator.parseHosts(hosts), startPort, endPort);
+        try {
+            long started = System.currentTimeMillis();
+            List<PortScanResult> results = coordinator.run(TimeUnit.HOURS.toMillis(24));
+            for (PortScanResult result : results) {
+                System.out.println(result);
+            }
+            System.out.println(results.size() + " open ports, " + coordinator.getCompletedShards() + "/" +
+                             coordinator.getShardCount() + " shards (" + coordinator.getReassignedShards() +
+                             " reassigned) in " + (System.currentTimeMillis() - started) + " ms");
+            return coordinator.getCompletedShards() == coordinator.getShardCount();
+        } catch (Exception e) {
+            System.err.println("Scan coordinator failed: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    private static boolean runScanWorker(String coordinator) {
+        int colon = coordinator.lastIndexOf(':');
+        APIConfig config = APIConfig.getInstance();
+        AdvancedPortScanner scanner = new AdvancedPortScanner(config.getScanTimeout(), config.getScanThreads());
+        String name;
+        try {
+            name = ProcessHandle.current().pid() + "@" + InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            name = "worker-" + ProcessHandle.current().pid();
+        }
+        
+        try {
+            int shards = new ScanWorker(coordinator.substring(0, colon), Integer.parseInt(coordinator.substring(colon + 1)),
+                                        name, scanner).run();
+            System.out.println("Scan worker finished " + shards + " shards");
+            return true;
+        } catch (Exception e) {
+            System.err.println("Scan worker failed: " + e.getMessage());
+            return false;
+        }
+    }
+    
     private static void demonstrateAPIService() {
         APIIntegrationService apiService = new APIIntegrationService();
         Map<String, Object> threatInfo = apiService.getThreatIntelligence("8.8.8.8");
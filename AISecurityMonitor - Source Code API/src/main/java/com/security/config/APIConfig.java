@@ -3,6 +3,10 @@ package com.security.config;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 public class APIConfig {
@@ -61,4 +65,346 @@ public class APIConfig {
     public int getScanTimeout() {
         return Integer.parseInt(properties.getProperty("scan.timeout", "1000"));
     }
+    
+    // Reverse DNS resolver
+    public int getDnsCacheSize() {
+        return getIntProperty("dns.cache.size", 4096);
+    }
+    
+    public int getDnsPositiveTtlSeconds() {
+        return getIntProperty("dns.ttl.positive", 3600);
+    }
+    
+    public int getDnsNegativeTtlSeconds() {
+        return getIntProperty("dns.ttl.negative", 300);
+    }
+    
+    public int getDnsThreads() {
+        return Math.max(1, getIntProperty("dns.threads", 4));
+    }
+    
+    // Process attribution: how often known PIDs may be rescanned for new sockets
+    public int getProcessRescanIntervalSeconds() {
+        return getIntProperty("process.rescan.interval", 30);
+    }
+    
+    // Passive packet capture
+    public boolean isCaptureEnabled() {
+        return getBooleanProperty("capture.enabled", true);
+    }
+    
+    public String getCaptureInterface() {
+        return properties.getProperty("capture.interface", "").trim();
+    }
+    
+    public int getCaptureSnaplen() {
+        // Large enough for DNS responses and TLS ClientHellos
+        return getIntProperty("capture.snaplen", 2048);
+    }
+    
+    public int getCaptureBufferMB() {
+        return getIntProperty("capture.buffer.mb", 16);
+    }
+    
+    public int getCaptureMaxFlows() {
+        return getIntProperty("capture.max.flows", 262144);
+    }
+    
+    public int getCaptureIdleTimeoutSeconds() {
+        return getIntProperty("capture.idle.timeout", 120);
+    }
+    
+    // Flow worker threads; 1 keeps everything on the capture thread
+    public int getCaptureShards() {
+        int defaultShards = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors() / 2));
+        return Math.max(1, getIntProperty("capture.shards", defaultShards));
+    }
+    
+    // Frames buffered per shard before the capture thread starts dropping
+    public int getCaptureRingSlots() {
+        return getIntProperty("capture.ring.slots", 4096);
+    }
+    
+    public int getPassiveDnsCacheSize() {
+        return getIntProperty("passive.dns.cache.size", 65536);
+    }
+    
+    // Clamp record TTLs: 0-second CDN answers are still worth remembering briefly
+    public int getPassiveDnsMinTtlSeconds() {
+        return getIntProperty("passive.dns.ttl.min", 60);
+    }
+    
+    public int getPassiveDnsMaxTtlSeconds() {
+        return getIntProperty("passive.dns.ttl.max", 86400);
+    }
+    
+    public boolean isAdmissionEnabled() {
+        return getBooleanProperty("admission.enabled", true);
+    }
+    
+    // Per monitoring run; keep below the 5 s polling period
+    public int getAdmissionBudgetMillis() {
+        return getIntProperty("admission.budget.ms", 4000);
+    }
+    
+    public int getAdmissionMinSamplePercent() {
+        return getIntProperty("admission.min.sample.percent", 5);
+    }
+    
+    public int getAdmissionFlaggedTtlSeconds() {
+        return getIntProperty("admission.flagged.ttl", 3600);
+    }
+    
+    // Analysis pipeline: one bounded queue per stage, sized in connections
+    public int getPipelineQueueCapacity() {
+        return getIntProperty("pipeline.queue.capacity", 1024);
+    }
+    
+    public int getPipelineEnrichThreads() {
+        return Math.max(1, getIntProperty("pipeline.enrich.threads", 2));
+    }
+    
+    public int getPipelineScoreThreads() {
+        int defaultThreads = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        return Math.max(1, getIntProperty("pipeline.score.threads", defaultThreads));
+    }
+    
+    public int getPipelineActThreads() {
+        return Math.max(1, getIntProperty("pipeline.act.threads", 1));
+    }
+    
+    // SQLite has a single writer; more threads only queue on its lock
+    public int getPipelinePersistThreads() {
+        return Math.max(1, getIntProperty("pipeline.persist.threads", 1));
+    }
+    
+    public int getPipelinePersistBatch() {
+        return Math.max(1, getIntProperty("pipeline.persist.batch", 256));
+    }
+    
+    // Base cadence of each monitoring task; the scheduler adapts around it
+    public int getDeviceScanIntervalMillis() {
+        return Math.max(1000, getIntProperty("monitor.devices.interval.ms", 60000));
+    }
+    
+    public int getConnectionPollIntervalMillis() {
+        return Math.max(500, getIntProperty("monitor.connections.interval.ms", 5000));
+    }
+    
+    public int getStatsRefreshIntervalMillis() {
+        return Math.max(500, getIntProperty("monitor.stats.interval.ms", 10000));
+    }
+    
+    // Windows for the KDD-style traffic features fed to the ML model
+    public int getFeatureTimeWindowMillis() {
+        return Math.max(100, getIntProperty("features.time.window.ms", 2000));
+    }
+    
+    public int getFeatureCountWindow() {
+        return Math.max(1, getIntProperty("features.count.window", 100));
+    }
+    
+    // Connections kept in memory for the dashboard
+    public int getHistoryCapacity() {
+        return Math.max(128, getIntProperty("history.capacity", 4096));
+    }
+    
+    // Local blocklist files (FireHOL, Spamhaus DROP, ...), one list per file
+    public String getIntelBlocklistDir() {
+        return properties.getProperty("intel.blocklist.dir", "blocklists").trim();
+    }
+    
+    public int getIntelRefreshSeconds() {
+        return Math.max(1, getIntProperty("intel.refresh.seconds", 60));
+    }
+    
+    public int getIntelListedScore() {
+        return Math.min(100, Math.max(0, getIntProperty("intel.listed.score", 85)));
+    }
+    
+    // Bloom filter of known-bad IPs that decides which addresses get remote lookups
+    public boolean isIntelGateEnabled() {
+        return getBooleanProperty("intel.gate.enabled", true);
+    }
+    
+    public int getIntelGateCapacity() {
+        return Math.max(1000, getIntProperty("intel.gate.capacity", 1000000));
+    }
+    
+    public double getIntelGateFalsePositiveRate() {
+        return getDoubleProperty("intel.gate.fp.rate", 0.01);
+    }
+    
+    // Background remote lookups started from the analysis path, and how many may wait
+    public int getIntelLookupThreads() {
+        return Math.max(1, getIntProperty("intel.lookup.threads", 4));
+    }
+    
+    public int getIntelLookupQueue() {
+        return Math.max(1, getIntProperty("intel.lookup.queue", 1024));
+    }
+    
+    // Embedded Prometheus endpoint; loopback only unless metrics.bind says otherwise
+    public boolean isMetricsEnabled() {
+        return getBooleanProperty("metrics.enabled", false);
+    }
+    
+    public String getMetricsBindAddress() {
+        return properties.getProperty("metrics.bind", "127.0.0.1").trim();
+    }
+    
+    public int getMetricsPort() {
+        return getIntProperty("metrics.port", 9464);
+    }
+    
+    // Distributed scanning: shard size, how long a silent worker is given before its shard is
+    // reassigned, and a shared secret workers must present (required off loopback)
+    public String getScanClusterBindAddress() {
+        return properties.getProperty("scan.cluster.bind", "127.0.0.1").trim();
+    }
+    
+    public int getScanShardPorts() {
+        return Math.max(1, getIntProperty("scan.cluster.shard.ports", 256));
+    }
+    
+    public int getScanWorkerTimeoutMillis() {
+        return Math.max(1000, getIntProperty("scan.cluster.worker.timeout.ms", 15000));
+    }
+    
+    public String getScanClusterToken() {
+        return properties.getProperty("scan.cluster.token", "").trim();
+    }
+    
+    // Alerts for the same source and type less than the window apart are one incident
+    public long getAlertWindowMillis() {
+        return Math.max(1, getIntProperty("alerts.window.seconds", 300)) * 1000L;
+    }
+    
+    public int getAlertFlushIntervalMillis() {
+        return Math.max(1, getIntProperty("alerts.flush.seconds", 30)) * 1000;
+    }
+    
+    // Agent mode: stream scored connections and threats to a collector at host:port
+    public String getAgentCollector() {
+        return properties.getProperty("agent.collector", "").trim();
+    }
+    
+    public String getAgentName() {
+        return properties.getProperty("agent.name", "").trim();
+    }
+    
+    public int getAgentBatchSize() {
+        return Math.max(1, getIntProperty("agent.batch.size", 512));
+    }
+    
+    public int getAgentLingerMillis() {
+        return Math.max(0, getIntProperty("agent.linger.ms", 200));
+    }
+    
+    public int getAgentQueueCapacity() {
+        return Math.max(1024, getIntProperty("agent.queue.capacity", 65536));
+    }
+    
+    // Collector listen address; off loopback it requires stream.token
+    public String getStreamBindAddress() {
+        return properties.getProperty("stream.bind", "127.0.0.1").trim();
+    }
+    
+    // Shared secret between agents and the collector; empty means none
+    public String getStreamToken() {
+        return properties.getProperty("stream.token", "").trim();
+    }
+    
+    // SQLite file for connections, threats and firewall actions
+    public String getDatabasePath() {
+        return properties.getProperty("db.path", "security_monitor.db").trim();
+    }
+    
+    public boolean isDatabasePathSet() {
+        return properties.getProperty("db.path") != null;
+    }
+    
+    // Synthetic traffic: unless db.path names a file, a throwaway one (deleted on exit) so the
+    // generated rows never reach the real database. Call before anything opens the database.
+    public void defaultToScratchDatabase() throws IOException {
+        if (!isDatabasePathSet()) {
+            Path scratch = Files.createTempFile("synthetic-", ".db");
+            scratch.toFile().deleteOnExit();
+            properties.setProperty("db.path", scratch.toString());
+        }
+    }
+    
+    // "netstat" reads the host's own connections; "synthetic" generates load.* traffic instead,
+    // with the firewall in dry-run, no lookups or streaming and a scratch database by default
+    public String getConnectionSource() {
+        return properties.getProperty("connection.source", "netstat").trim();
+    }
+    
+    // Synthetic load: connections per second, share to malicious hosts and address pool sizes
+    public double getLoadRate() {
+        return getDoubleProperty("load.rate", 1000);
+    }
+    
+    public double getLoadMaliciousPercent() {
+        return getDoubleProperty("load.malicious.percent", 1);
+    }
+    
+    public int getLoadRemoteIps() {
+        return getIntProperty("load.remote.ips", 10000);
+    }
+    
+    public int getLoadMaliciousIps() {
+        return getIntProperty("load.malicious.ips", 50);
+    }
+    
+    public int getLoadLocalIps() {
+        return getIntProperty("load.local.ips", 1);
+    }
+    
+    public int getLoadSeed() {
+        return getIntProperty("load.seed", 42);
+    }
+    
+    public int getLoadReportIntervalSeconds() {
+        return Math.max(1, getIntProperty("load.report.seconds", 5));
+    }
+    
+    // Comma-separated addresses or CIDR blocks, IPv4 or IPv6
+    public List<String> getIpAllowlist() {
+        return getListProperty("ip.allowlist");
+    }
+    
+    public List<String> getIpDenylist() {
+        return getListProperty("ip.denylist");
+    }
+    
+    private List<String> getListProperty(String key) {
+        List<String> values = new ArrayList<>();
+        for (String value : properties.getProperty(key, "").split(",")) {
+            if (!value.trim().isEmpty()) {
+                values.add(value.trim());
+            }
+        }
+        return values;
+    }
+    
+    private int getIntProperty(String key, int defaultValue) {
+        try {
+            return Integer.parseInt(properties.getProperty(key, String.valueOf(defaultValue)).trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+    
+    private double getDoubleProperty(String key, double defaultValue) {
+        try {
+            return Double.parseDouble(properties.getProperty(key, String.valueOf(defaultValue)).trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+    
+    private boolean getBooleanProperty(String key, boolean defaultValue) {
+        return Boolean.parseBoolean(properties.getProperty(key, String.valueOf(defaultValue)).trim());
+    }
 }
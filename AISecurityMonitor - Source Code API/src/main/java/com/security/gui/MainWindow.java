@@ -3,6 +3,8 @@ package com.security.gui;
 import com.security.services.scanner.AdvancedPortScanner;
 import com.security.services.scanner.AdvancedPortScanner.PortScanResult;
 import com.security.services.api.APIIntegrationService;
+import com.security.services.metrics.LatencyHistogram;
+import com.security.services.metrics.MetricsRegistry;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
@@ -30,6 +32,10 @@ public class MainWindow extends JFrame {
     private JProgressBar progressBar;
     private SwingWorker<Void, String> currentScanWorker;
     
+    // Metrics components
+    private DefaultTableModel latencyModel;
+    private DefaultTableModel counterModel;
+    
     public MainWindow() {
         super("AI Security Monitor");
         loadConfig();
@@ -86,6 +92,9 @@ public class MainWindow extends JFrame {
         // Log Tab
         tabbedPane.addTab("Logs", createLogPanel());
         
+        // Metrics Tab
+        tabbedPane.addTab("Metrics", createMetricsPanel());
+        
         add(tabbedPane, BorderLayout.CENTER);
         
         // Status Bar
@@ -486,6 +495,65 @@ public class MainWindow extends JFrame {
         return panel;
     }
     
+    private JPanel createMetricsPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+        
+        String[] latencyColumns = {"Stage", "Count", "p50 (ms)", "p90 (ms)", "p99 (ms)", "Max (ms)", "Mean (ms)"};
+        latencyModel = new DefaultTableModel(latencyColumns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JScrollPane latencyPane = new JScrollPane(new JTable(latencyModel));
+        latencyPane.setBorder(BorderFactory.createTitledBorder("Latency"));
+        
+        String[] counterColumns = {"Counter", "Value"};
+        counterModel = new DefaultTableModel(counterColumns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JScrollPane counterPane = new JScrollPane(new JTable(counterModel));
+        counterPane.setBorder(BorderFactory.createTitledBorder("Counters"));
+        
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, latencyPane, counterPane);
+        split.setResizeWeight(0.6);
+        panel.add(split, BorderLayout.CENTER);
+        
+        int interval = Integer.parseInt(config.getProperty("gui.update.interval", "2000"));
+        new javax.swing.Timer(interval, e -> refreshMetrics()).start();
+        
+        return panel;
+    }
+    
+    private void refreshMetrics() {
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        
+        latencyModel.setRowCount(0);
+        for (LatencyHistogram histogram : registry.getHistograms().values()) {
+            latencyModel.addRow(new Object[]{
+                histogram.getName(),
+                histogram.getCount(),
+                formatMillis(histogram.percentile(50)),
+                formatMillis(histogram.percentile(90)),
+                formatMillis(histogram.percentile(99)),
+                formatMillis(histogram.getMaxNanos()),
+                formatMillis(histogram.getMeanNanos())
+            });
+        }
+        
+        counterModel.setRowCount(0);
+        for (Map.Entry<String, Long> counter : registry.getCounters().entrySet()) {
+            counterModel.addRow(new Object[]{counter.getKey(), counter.getValue()});
+        }
+    }
+    
+    private static String formatMillis(double nanos) {
+        return String.format("%.3f", nanos / 1_000_000);
+    }
+    
     private JPanel createLogPanel() {
         JPanel panel = new JPanel(new BorderLayout());
         
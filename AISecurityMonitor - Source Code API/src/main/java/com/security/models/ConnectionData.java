@@ -12,6 +12,15 @@ public class ConnectionData {
     private Date timestamp;
     private double threatScore;
     private String status;
+    private String remoteHostname;
+    private String remoteDomain;
+    private String intelMatch;
+    private double intelScore;
+    private long inode;
+    private int pid;
+    private String processName;
+    private String processPath;
+    private FlowStats flowStats;
     
     // Constructor, getters, and setters
     public ConnectionData(String protocol, String localIP, String remoteIP, 
@@ -25,6 +34,7 @@ public class ConnectionData {
         this.timestamp = new Date();
         this.threatScore = 0.0;
         this.status = "NORMAL";
+        this.pid = -1;
     }
     
     // Getters and setters for all fields
@@ -55,9 +65,53 @@ public class ConnectionData {
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
     
+    // Reverse-DNS name of the remote IP; the IP itself until the resolver has an answer
+    public String getRemoteHostname() { return remoteHostname; }
+    public void setRemoteHostname(String remoteHostname) { this.remoteHostname = remoteHostname; }
+    
+    // Best name for the remote end: the looked-up domain, else a resolved PTR name, else null
+    public String getRemoteName() {
+        if (remoteDomain != null) {
+            return remoteDomain;
+        }
+        return remoteHostname != null && !remoteHostname.equals(remoteIP) ? remoteHostname : null;
+    }
+    
+    // Name the remote IP was looked up as (from observed DNS traffic), null if not seen
+    public String getRemoteDomain() { return remoteDomain; }
+    public void setRemoteDomain(String remoteDomain) { this.remoteDomain = remoteDomain; }
+    
+    // Local blocklists the remote IP is on, comma-separated; null if none
+    public String getIntelMatch() { return intelMatch; }
+    public void setIntelMatch(String intelMatch) { this.intelMatch = intelMatch; }
+    
+    // Combined remote threat-intel score (0-100); 0 if not looked up
+    public double getIntelScore() { return intelScore; }
+    public void setIntelScore(double intelScore) { this.intelScore = intelScore; }
+    
+    // Owning process (inode is the Linux socket inode from /proc/net/tcp)
+    public long getInode() { return inode; }
+    public void setInode(long inode) { this.inode = inode; }
+    
+    public int getPid() { return pid; }
+    public void setPid(int pid) { this.pid = pid; }
+    
+    public String getProcessName() { return processName; }
+    public void setProcessName(String processName) { this.processName = processName; }
+    
+    public String getProcessPath() { return processPath; }
+    public void setProcessPath(String processPath) { this.processPath = processPath; }
+    
+    // Captured packet counters, null when capture has not seen this connection
+    public FlowStats getFlowStats() { return flowStats; }
+    public void setFlowStats(FlowStats flowStats) { this.flowStats = flowStats; }
+    
     @Override
     public String toString() {
-        return String.format("%s %s:%d -> %s:%d [%s] Score: %.1f%%", 
-            protocol, localIP, localPort, remoteIP, remotePort, state, threatScore);
+        String process = processName != null ? " (" + processName + ":" + pid + ")" : "";
+        String domain = remoteDomain != null ? " " + remoteDomain : "";
+        String intel = intelMatch != null ? " listed:" + intelMatch : "";
+        return String.format("%s %s:%d -> %s:%d%s [%s]%s%s Score: %.1f%%", 
+            protocol, localIP, localPort, remoteIP, remotePort, domain, state, process, intel, threatScore);
     }
 }
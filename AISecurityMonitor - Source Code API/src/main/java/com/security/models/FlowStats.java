@@ -0,0 +1,54 @@
+package com.security.models;
+
+// Packet-level counters for one flow, as seen by passive capture.
+// "src" is the side that sent the first packet of the flow (the initiator).
+public class FlowStats {
+    private long srcBytes;
+    private long dstBytes;
+    private long srcPackets;
+    private long dstPackets;
+    private long firstSeen;
+    private long lastSeen;
+    private int tcpFlags;
+    private TlsInfo tls;
+    
+    public FlowStats(long srcBytes, long dstBytes, long srcPackets, long dstPackets,
+                     long firstSeen, long lastSeen, int tcpFlags) {
+        this(srcBytes, dstBytes, srcPackets, dstPackets, firstSeen, lastSeen, tcpFlags, null);
+    }
+    
+    public FlowStats(long srcBytes, long dstBytes, long srcPackets, long dstPackets,
+                     long firstSeen, long lastSeen, int tcpFlags, TlsInfo tls) {
+        this.srcBytes = srcBytes;
+        this.dstBytes = dstBytes;
+        this.srcPackets = srcPackets;
+        this.dstPackets = dstPackets;
+        this.firstSeen = firstSeen;
+        this.lastSeen = lastSeen;
+        this.tcpFlags = tcpFlags;
+        this.tls = tls;
+    }
+    
+    public long getSrcBytes() { return srcBytes; }
+    public long getDstBytes() { return dstBytes; }
+    public long getSrcPackets() { return srcPackets; }
+    public long getDstPackets() { return dstPackets; }
+    
+    // Timestamps are epoch milliseconds
+    public long getFirstSeen() { return firstSeen; }
+    public long getLastSeen() { return lastSeen; }
+    public long getDurationMillis() { return lastSeen - firstSeen; }
+    
+    // OR of every TCP flag seen in either direction
+    public int getTcpFlags() { return tcpFlags; }
+    
+    // ClientHello metadata if this flow started a TLS handshake, otherwise null
+    public TlsInfo getTls() { return tls; }
+    
+    @Override
+    public String toString() {
+        return String.format("%d/%d bytes, %d/%d pkts, %d ms, flags 0x%02x%s",
+            srcBytes, dstBytes, srcPackets, dstPackets, getDurationMillis(), tcpFlags,
+            tls != null ? ", " + tls : "");
+    }
+}
@@ -0,0 +1,44 @@
+package com.security.models;
+
+// One row of the threats table, as streamed from agents to a collector. A new incident has one
+// occurrence; later copies of the same incident (same timestamp) carry its updated count and
+// last-seen time.
+public class ThreatEvent {
+    private final long timestamp;
+    private final String threatType;
+    private final String sourceIp;
+    private final String targetIp;
+    private final String description;
+    private final int severity;
+    private final String action;
+    private final int occurrences;
+    private final long lastSeen;
+    
+    public ThreatEvent(long timestamp, String threatType, String sourceIp, String targetIp,
+                       String description, int severity, String action) {
+        this(timestamp, threatType, sourceIp, targetIp, description, severity, action, 1, timestamp);
+    }
+    
+    public ThreatEvent(long timestamp, String threatType, String sourceIp, String targetIp,
+                       String description, int severity, String action, int occurrences, long lastSeen) {
+        this.timestamp = timestamp;
+        this.threatType = threatType;
+        this.sourceIp = sourceIp;
+        this.targetIp = targetIp;
+        this.description = description;
+        this.severity = severity;
+        this.action = action;
+        this.occurrences = occurrences;
+        this.lastSeen = lastSeen;
+    }
+    
+    public long getTimestamp() { return timestamp; }
+    public String getThreatType() { return threatType; }
+    public String getSourceIp() { return sourceIp; }
+    public String getTargetIp() { return targetIp; }
+    public String getDescription() { return description; }
+    public int getSeverity() { return severity; }
+    public String getAction() { return action; }
+    public int getOccurrences() { return occurrences; }
+    public long getLastSeen() { return lastSeen; }
+}
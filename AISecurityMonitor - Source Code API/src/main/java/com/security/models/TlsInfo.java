@@ -0,0 +1,34 @@
+package com.security.models;
+
+// What the client announced in its TLS ClientHello. Any field may be null if the
+// hello did not carry it or was cut off by the capture snaplen.
+public class TlsInfo {
+    private final int version;
+    private final String serverName;
+    private final String alpn;
+    private final String ja3;
+    
+    public TlsInfo(int version, String serverName, String alpn, String ja3) {
+        this.version = version;
+        this.serverName = serverName;
+        this.alpn = alpn;
+        this.ja3 = ja3;
+    }
+    
+    // Legacy client_version field, e.g. 0x0303
+    public int getVersion() { return version; }
+    
+    // SNI host name
+    public String getServerName() { return serverName; }
+    
+    // First protocol offered via ALPN (h2, http/1.1, ...)
+    public String getAlpn() { return alpn; }
+    
+    // JA3 fingerprint as lowercase MD5 hex; null if the hello was truncated
+    public String getJa3() { return ja3; }
+    
+    @Override
+    public String toString() {
+        return String.format("TLS %04x sni=%s alpn=%s ja3=%s", version, serverName, alpn, ja3);
+    }
+}
@@ -0,0 +1,145 @@
+package com.security.services;
+
+import com.security.models.ThreatEvent;
+import com.security.services.database.DatabaseService;
+import com.security.services.metrics.MetricsRegistry;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Turns repeated alerts into incidents. Alerts with the same source IP and threat type belong
+// to one incident for as long as they keep coming less than the window apart: the first one
+// writes the threats row and is reported, later ones only bump its count and last-seen time.
+// flush() writes changed counts to the row and closes incidents that have gone quiet, so a
+// connection that stays malicious for an hour is one row, not one per poll. Each count written
+// also goes to the update listener (the agent streamer), so a collector's copy keeps up.
+public class AlertAggregator {
+    private final DatabaseService database;
+    private final long windowMillis;
+    private final Map<String, Incident> open = new HashMap<>();
+    private volatile Consumer<ThreatEvent> updateListener;
+    
+    private final LongAdder raised = MetricsRegistry.getInstance().counter("alerts.raised");
+    private final LongAdder suppressed = MetricsRegistry.getInstance().counter("alerts.suppressed");
+    
+    public AlertAggregator(DatabaseService database, long windowMillis) {
+        this.database = database;
+        this.windowMillis = windowMillis;
+        MetricsRegistry.getInstance().gauge("alerts.open", this::getOpenIncidents);
+    }
+    
+    // Called with the incident's first alert carrying its current count, last-seen and severity
+    public void setUpdateListener(Consumer<ThreatEvent> updateListener) {
+        this.updateListener = updateListener;
+    }
+    
+    // true if the alert starts a new incident (report it), false if it was folded into one
+    public synchronized boolean record(ThreatEvent alert) {
+        String key = alert.getSourceIp() + "|" + alert.getThreatType();
+        Incident incident = open.get(key);
+        if (incident != null && alert.getTimestamp() - incident.lastSeen <= windowMillis) {
+            incident.add(alert);
+            suppressed.increment();
+            return false;
+        }
+        if (incident != null) {
+            close(incident);
+        }
+        
+        long id = database.logThreat(alert, null);
+        open.put(key, new Incident(id, alert));
+        raised.increment();
+        return true;
+    }
+    
+    // Writes pending counts and closes incidents quiet for longer than the window
+    public synchronized void flush() {
+        long now = System.currentTimeMillis();
+        Iterator<Incident> incidents = open.values().iterator();
+        while (incidents.hasNext()) {
+            Incident incident = incidents.next();
+            if (now - incident.lastSeen > windowMillis) {
+                close(incident);
+                incidents.remove();
+            } else {
+                write(incident);
+            }
+        }
+    }
+    
+    // Shutdown: everything pending goes to the database
+    public synchronized void close() {
+        for (Incident incident : open.values()) {
+            write(incident);
+        }
+        open.clear();
+    }
+    
+    private void close(Incident incident) {
+        write(incident);
+        if (incident.occurrences > 1) {
+            System.out.println("Incident ended: " + incident.type + " from " + incident.sourceIp + ", " +
+                             incident.occurrences + " alerts over " +
+                             (incident.lastSeen - incident.firstSeen) / 1000 + " s");
+        }
+    }
+    
+    private void write(Incident incident) {
+        if (incident.occurrences == incident.written) {
+            return;
+        }
+        if (incident.id >= 0) {
+            database.updateThreatOccurrences(incident.id, incident.occurrences, incident.lastSeen, incident.maxSeverity);
+        }
+        Consumer<ThreatEvent> listener = updateListener;
+        if (listener != null) {
+            listener.accept(incident.toEvent());
+        }
+        incident.written = incident.occurrences;
+    }
+    
+    public synchronized int getOpenIncidents() {
+        return open.size();
+    }
+    
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("open_incidents", getOpenIncidents());
+        stats.put("raised", raised.sum());
+        stats.put("suppressed", suppressed.sum());
+        return stats;
+    }
+    
+    private static final class Incident {
+        final long id;
+        final ThreatEvent first;
+        final String sourceIp;
+        final String type;
+        final long firstSeen;
+        long lastSeen;
+        int occurrences = 1;
+        int written = 1;
+        int maxSeverity;
+        
+        Incident(long id, ThreatEvent first) {
+            this.id = id;
+            this.first = first;
+            this.sourceIp = first.getSourceIp();
+            this.type = first.getThreatType();
+            this.firstSeen = first.getTimestamp();
+            this.lastSeen = first.getTimestamp();
+            this.maxSeverity = first.getSeverity();
+        }
+        
+        void add(ThreatEvent alert) {
+            occurrences++;
+            lastSeen = Math.max(lastSeen, alert.getTimestamp());
+            maxSeverity = Math.max(maxSeverity, alert.getSeverity());
+        }
+        
+        ThreatEvent toEvent() {
+            return new ThreatEvent(firstSeen, type, sourceIp, first.getTargetIp(), first.getDescription(),
+                                   maxSeverity, first.getAction(), occurrences, lastSeen);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.security.services;
+
+import com.security.models.ConnectionData;
+import java.util.List;
+
+// Where AISecurityMonitor gets connections from on each poll: the host's own sockets
+// (NetworkScannerService) or a synthetic generator for load testing.
+public interface ConnectionSource {
+    List<ConnectionData> scanConnections();
+}
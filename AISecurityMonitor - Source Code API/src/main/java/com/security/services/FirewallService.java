@@ -1,8 +1,45 @@
 package com.security.services;
 
+import com.security.services.metrics.FirewallActionEvent;
+import com.security.services.metrics.LatencyHistogram;
+import com.security.services.metrics.MetricsRegistry;
+
 public class FirewallService {
+    // When set, blocks are logged but no firewall rule is created (replay, load tests)
+    private volatile boolean dryRun = false;
+    
+    private final LatencyHistogram blockLatency = MetricsRegistry.getInstance().histogram("firewall.block");
     
     public boolean blockIP(String ip) {
+        FirewallActionEvent event = new FirewallActionEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            success = applyBlock(ip);
+            return success;
+        } finally {
+            blockLatency.recordSince(start);
+            commit(event, ip, "block", success);
+        }
+    }
+    
+    private void commit(FirewallActionEvent event, String ip, String action, boolean success) {
+        if (event.shouldCommit()) {
+            event.ip = ip;
+            event.action = action;
+            event.dryRun = dryRun;
+            event.success = success;
+            event.commit();
+        }
+    }
+    
+    private boolean applyBlock(String ip) {
+        if (dryRun) {
+            System.out.println("[dry-run] Would block IP: " + ip);
+            return true;
+        }
+        
         System.out.println("Attempting to block IP: " + ip);
         
         try {
@@ -55,6 +92,9 @@ public class FirewallService {
     }
     
     public boolean unblockIP(String ip) {
+        FirewallActionEvent event = new FirewallActionEvent();
+        event.begin();
+        boolean success = false;
         try {
             String os = System.getProperty("os.name").toLowerCase();
             
@@ -64,11 +104,16 @@ public class FirewallService {
                     ip
                 );
                 Process p = Runtime.getRuntime().exec(cmd);
-                return p.waitFor() == 0;
+                success = p.waitFor() == 0;
             }
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            commit(event, ip, "unblock", success);
         }
-        return false;
+        return success;
     }
+    
+    public boolean isDryRun() { return dryRun; }
+    public void setDryRun(boolean dryRun) { this.dryRun = dryRun; }
 }
@@ -0,0 +1,180 @@
+package com.security.services;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+// Runs each monitoring task on its own cadence. A task is rescheduled only after its run
+// finishes, so a slow run can never overlap or queue up behind itself; the slots it
+// overran are counted as skipped instead of executed back-to-back. stop() does not wait
+// for a run in progress, so start() holds the new runs back until the old ones are done.
+//
+// The interval adapts between base/2 and base*6: it never drops below twice the last
+// run time, shrinks while the task reports high churn (much changed since its last run)
+// and backs off while nothing changes.
+public class MonitoringScheduler {
+    private static final double MIN_FACTOR = 0.5;
+    private static final double MAX_FACTOR = 6.0;
+    private static final double HIGH_CHURN = 0.2;
+    private static final double LOW_CHURN = 0.02;
+    
+    // One monitoring pass. Returns the fraction (0..1) of what it looked at that changed
+    // since the previous pass, or a negative value to keep the interval at its base.
+    public interface Task {
+        double run() throws Exception;
+    }
+    
+    private final List<TaskState> tasks = new ArrayList<>();
+    private ScheduledExecutorService executor;
+    // The executor stop() shut down last; its runs may still be going
+    private ScheduledExecutorService stopped;
+    
+    public synchronized void register(String name, long baseIntervalMillis, Task task) {
+        tasks.add(new TaskState(name, baseIntervalMillis, task));
+    }
+    
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        ScheduledExecutorService target = Executors.newScheduledThreadPool(Math.max(1, tasks.size()), r -> {
+            Thread thread = new Thread(r, "monitor-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor = target;
+        ScheduledExecutorService previous = stopped;
+        stopped = null;
+        if (previous != null && !previous.isTerminated()) {
+            target.execute(() -> startAfter(previous, target));
+        } else {
+            scheduleAll(target);
+        }
+    }
+    
+    // Waits out the previous executor's runs so TaskState is never written by two at once
+    private void startAfter(ScheduledExecutorService previous, ScheduledExecutorService target) {
+        try {
+            previous.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            return;
+        }
+        synchronized (this) {
+            scheduleAll(target);
+        }
+    }
+    
+    private void scheduleAll(ScheduledExecutorService target) {
+        for (TaskState state : tasks) {
+            state.interval = state.baseInterval;
+            schedule(target, state, 0);
+        }
+    }
+    
+    // Stops scheduling. Runs already in progress get up to timeoutMillis before being
+    // interrupted; with 0 they are left to finish on their own.
+    public void stop(long timeoutMillis) {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = executor;
+            executor = null;
+            if (current != null) {
+                stopped = current;
+            }
+        }
+        if (current == null) {
+            return;
+        }
+        current.shutdown();
+        if (timeoutMillis <= 0) {
+            return;
+        }
+        try {
+            if (!current.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                current.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            current.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void schedule(ScheduledExecutorService target, TaskState state, long delayMillis) {
+        try {
+            target.schedule(() -> execute(target, state), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Stopped in the meantime
+        }
+    }
+    
+    private void execute(ScheduledExecutorService target, TaskState state) {
+        long started = System.nanoTime();
+        double churn = -1;
+        try {
+            churn = state.task.run();
+        } catch (Exception e) {
+            System.err.println("Error in " + state.name + ": " + e.getMessage());
+        }
+        long tookMillis = (System.nanoTime() - started) / 1_000_000;
+        
+        state.runs++;
+        state.lastRunMillis = tookMillis;
+        state.lastChurn = churn;
+        if (tookMillis > state.interval) {
+            state.skipped += tookMillis / state.interval;
+        }
+        state.interval = nextInterval(state, tookMillis, churn);
+        
+        // Measured from the start of this run, so the cadence holds as long as runs fit
+        schedule(target, state, Math.max(0, state.interval - tookMillis));
+    }
+    
+    private static long nextInterval(TaskState state, long tookMillis, double churn) {
+        long min = (long) (state.baseInterval * MIN_FACTOR);
+        long max = (long) (state.baseInterval * MAX_FACTOR);
+        long interval;
+        if (churn < 0) {
+            interval = state.baseInterval;
+        } else if (churn >= HIGH_CHURN) {
+            interval = state.interval / 2;
+        } else if (churn <= LOW_CHURN) {
+            interval = state.interval * 3 / 2;
+        } else {
+            // Moderate churn: drift back toward the base cadence
+            interval = (state.interval + state.baseInterval) / 2;
+        }
+        interval = Math.max(min, Math.min(max, interval));
+        // A task may use at most half its thread, even if that exceeds max
+        return Math.max(interval, tookMillis * 2);
+    }
+    
+    public synchronized Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (TaskState state : tasks) {
+            stats.put(state.name + "_runs", state.runs);
+            stats.put(state.name + "_skipped", state.skipped);
+            stats.put(state.name + "_interval_ms", state.interval);
+            stats.put(state.name + "_last_run_ms", state.lastRunMillis);
+            stats.put(state.name + "_churn", state.lastChurn);
+        }
+        return stats;
+    }
+    
+    // Written only by the task's own run, which never overlaps itself
+    private static final class TaskState {
+        final String name;
+        final long baseInterval;
+        final Task task;
+        volatile long interval;
+        volatile long runs;
+        volatile long skipped;
+        volatile long lastRunMillis;
+        volatile double lastChurn = -1;
+        
+        TaskState(String name, long baseInterval, Task task) {
+            this.name = name;
+            this.baseInterval = Math.max(1, baseInterval);
+            this.task = task;
+            this.interval = this.baseInterval;
+        }
+    }
+}
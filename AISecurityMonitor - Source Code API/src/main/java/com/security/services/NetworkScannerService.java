@@ -2,11 +2,25 @@ package com.security.services;
 
 import com.security.models.ConnectionData;
 import com.security.models.DeviceInfo;
+import com.security.services.dns.HostnameResolverService;
+import com.security.services.scanner.AdvancedPortScanner;
+import java.io.*;
 import java.net.*;
 import java.util.*;
 
-public class NetworkScannerService {
+public class NetworkScannerService implements ConnectionSource {
+    private final HostnameResolverService hostnameResolver;
+    private String localHostname;
     
+    public NetworkScannerService() {
+        this(new HostnameResolverService());
+    }
+    
+    public NetworkScannerService(HostnameResolverService hostnameResolver) {
+        this.hostnameResolver = hostnameResolver;
+    }
+    
+    @Override
     public List<ConnectionData> scanConnections() {
         List<ConnectionData> connections = new ArrayList<>();
         
@@ -40,15 +54,33 @@ public class NetworkScannerService {
             // Add local device
             DeviceInfo localDevice = new DeviceInfo();
             localDevice.setIp(localIP);
-            localDevice.setHostname(InetAddress.getLocalHost().getHostName());
+            localDevice.setHostname(getLocalHostname());
             localDevice.setDeviceType("Computer");
             localDevice.setStatus("Online");
             devices.put(localIP, localDevice);
             
+            // Seed devices from the kernel neighbor cache (free, and gives us MACs)
+            Map<String, String> neighbors = readNeighborCache();
+            for (Map.Entry<String, String> neighbor : neighbors.entrySet()) {
+                String ip = neighbor.getKey();
+                if (ip.equals(localIP)) {
+                    localDevice.setMacAddress(neighbor.getValue());
+                    continue;
+                }
+                DeviceInfo device = new DeviceInfo();
+                device.setIp(ip);
+                device.setHostname(hostnameResolver.resolve(ip));
+                device.setMacAddress(neighbor.getValue());
+                device.setStatus("Online");
+                device.setDeviceType(detectDeviceType(ip));
+                devices.put(ip, device);
+            }
+            
             // Scan local network (simplified - in reality, you'd scan a range)
+            // Only probe addresses the neighbor cache doesn't already know about
             for (int i = 1; i <= 10; i++) {
                 String ip = getNetworkPrefix(localIP) + i;
-                if (!ip.equals(localIP)) {
+                if (!ip.equals(localIP) && !devices.containsKey(ip)) {
                     DeviceInfo device = scanDevice(ip);
                     if (device != null) {
                         devices.put(ip, device);
@@ -69,7 +101,7 @@ public class NetworkScannerService {
             if (address.isReachable(1000)) {
                 DeviceInfo device = new DeviceInfo();
                 device.setIp(ip);
-                device.setHostname(address.getHostName());
+                device.setHostname(hostnameResolver.resolve(ip));
                 device.setStatus("Online");
                 device.setDeviceType(detectDeviceType(ip));
                 return device;
@@ -80,6 +112,99 @@ public class NetworkScannerService {
         return null;
     }
     
+    // Returns IPv4 -> MAC for every resolved entry in the OS neighbor (ARP) cache
+    private Map<String, String> readNeighborCache() {
+        Map<String, String> neighbors = new LinkedHashMap<>();
+        String os = System.getProperty("os.name").toLowerCase();
+        
+        try {
+            if (os.contains("win")) {
+                readArpCommand(neighbors, "arp", "-a");
+            } else if (os.contains("linux")) {
+                File procArp = new File("/proc/net/arp");
+                if (procArp.canRead()) {
+                    readProcArp(procArp, neighbors);
+                } else {
+                    readIpNeigh(neighbors);
+                }
+            } else {
+                readArpCommand(neighbors, "arp", "-an");
+            }
+        } catch (Exception e) {
+            // Neighbor cache unavailable, fall back to probing only
+        }
+        
+        return neighbors;
+    }
+    
+    private void readProcArp(File procArp, Map<String, String> neighbors) throws IOException {
+        // IP address  HW type  Flags  HW address  Mask  Device
+        try (BufferedReader reader = new BufferedReader(new FileReader(procArp))) {
+            reader.readLine(); // header
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length >= 4 && !"0x0".equals(parts[2])) {
+                    addNeighbor(neighbors, parts[0], parts[3]);
+                }
+            }
+        }
+    }
+    
+    private void readIpNeigh(Map<String, String> neighbors) throws IOException {
+        // 192.168.1.1 dev eth0 lladdr aa:bb:cc:dd:ee:ff REACHABLE
+        Process process = new ProcessBuilder("ip", "-4", "neigh", "show").start();
+        try (Scanner scanner = new Scanner(process.getInputStream())) {
+            while (scanner.hasNextLine()) {
+                String[] parts = scanner.nextLine().trim().split("\\s+");
+                for (int i = 1; i < parts.length - 1; i++) {
+                    if ("lladdr".equals(parts[i])) {
+                        String state = parts[parts.length - 1];
+                        if (!"FAILED".equals(state) && !"INCOMPLETE".equals(state)) {
+                            addNeighbor(neighbors, parts[0], parts[i + 1]);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+    }
+    
+    private void readArpCommand(Map<String, String> neighbors, String... command) throws IOException {
+        // Windows: "  192.168.1.1    aa-bb-cc-dd-ee-ff    dynamic"
+        // macOS:   "? (192.168.1.1) at aa:bb:cc:dd:ee:ff on en0 ifscope [ethernet]"
+        Process process = new ProcessBuilder(command).start();
+        try (Scanner scanner = new Scanner(process.getInputStream())) {
+            while (scanner.hasNextLine()) {
+                String[] parts = scanner.nextLine().trim().replace("(", "").replace(")", "").split("\\s+");
+                if (parts.length >= 4 && "?".equals(parts[0])) {
+                    addNeighbor(neighbors, parts[1], parts[3]);
+                } else if (parts.length >= 3) {
+                    addNeighbor(neighbors, parts[0], parts[1]);
+                }
+            }
+        }
+    }
+    
+    private void addNeighbor(Map<String, String> neighbors, String ip, String mac) {
+        if (!AdvancedPortScanner.isValidIP(ip)) {
+            return;
+        }
+        
+        String normalized = mac.toLowerCase().replace('-', ':');
+        if (!normalized.matches("([0-9a-f]{1,2}:){5}[0-9a-f]{1,2}")) {
+            return;
+        }
+        
+        // Skip incomplete, broadcast and multicast entries
+        if (normalized.equals("00:00:00:00:00:00") || normalized.equals("ff:ff:ff:ff:ff:ff") ||
+            normalized.startsWith("01:00:5e")) {
+            return;
+        }
+        
+        neighbors.put(ip, normalized);
+    }
+    
     private List<ConnectionData> scanWindowsConnections() throws Exception {
         List<ConnectionData> connections = new ArrayList<>();
         ProcessBuilder pb = new ProcessBuilder("netstat", "-ano");
@@ -113,7 +238,7 @@ public class NetworkScannerService {
                 String[] remoteParts = remote.split(":");
                 
                 if (localParts.length >= 2 && remoteParts.length >= 2) {
-                    return new ConnectionData(
+                    ConnectionData conn = new ConnectionData(
                         protocol,
                         localParts[0],
                         remoteParts[0],
@@ -121,6 +246,9 @@ public class NetworkScannerService {
                         Integer.parseInt(remoteParts[1]),
                         state
                     );
+                    // netstat -ano puts the owning PID in the last column
+                    conn.setPid(Integer.parseInt(parts[parts.length - 1]));
+                    return conn;
                 }
             }
         } catch (Exception e) {
@@ -130,8 +258,78 @@ public class NetworkScannerService {
     }
     
     private List<ConnectionData> scanUnixConnections() {
-        // Similar implementation for Unix systems
-        return new ArrayList<>();
+        List<ConnectionData> connections = new ArrayList<>();
+        
+        // Linux exposes the socket tables (including the socket inode) directly
+        readProcNetTcp(new File("/proc/net/tcp"), connections);
+        readProcNetTcp(new File("/proc/net/tcp6"), connections);
+        
+        return connections;
+    }
+    
+    private void readProcNetTcp(File table, List<ConnectionData> connections) {
+        if (!table.canRead()) {
+            return;
+        }
+        
+        // sl local_address rem_address st tx_queue:rx_queue tr:tm->when retrnsmt uid timeout inode
+        try (BufferedReader reader = new BufferedReader(new FileReader(table))) {
+            reader.readLine(); // header
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length < 10) {
+                    continue;
+                }
+                
+                String[] local = parts[1].split(":");
+                String[] remote = parts[2].split(":");
+                ConnectionData conn = new ConnectionData(
+                    "TCP",
+                    decodeProcAddress(local[0]),
+                    decodeProcAddress(remote[0]),
+                    Integer.parseInt(local[1], 16),
+                    Integer.parseInt(remote[1], 16),
+                    decodeTcpState(parts[3])
+                );
+                conn.setInode(Long.parseLong(parts[9]));
+                connections.add(conn);
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to read " + table + ": " + e.getMessage());
+        }
+    }
+    
+    // Addresses are hex, one little-endian 32-bit word at a time
+    private String decodeProcAddress(String hex) throws UnknownHostException {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int word = 0; word < bytes.length / 4; word++) {
+            for (int b = 0; b < 4; b++) {
+                int pos = (word * 4 + (3 - b)) * 2;
+                bytes[word * 4 + b] = (byte) Integer.parseInt(hex.substring(pos, pos + 2), 16);
+            }
+        }
+        
+        // Report IPv4-mapped IPv6 addresses as plain IPv4
+        InetAddress address = InetAddress.getByAddress(bytes);
+        return address.getHostAddress();
+    }
+    
+    private String decodeTcpState(String code) {
+        switch (code) {
+            case "01": return "ESTABLISHED";
+            case "02": return "SYN_SENT";
+            case "03": return "SYN_RECV";
+            case "04": return "FIN_WAIT1";
+            case "05": return "FIN_WAIT2";
+            case "06": return "TIME_WAIT";
+            case "07": return "CLOSE";
+            case "08": return "CLOSE_WAIT";
+            case "09": return "LAST_ACK";
+            case "0A": return "LISTENING";
+            case "0B": return "CLOSING";
+            default: return "UNKNOWN";
+        }
     }
     
     private List<ConnectionData> generateDemoConnections() {
@@ -158,6 +356,18 @@ public class NetworkScannerService {
         return connections;
     }
     
+    // Looked up once; getLocalHost() can stall on hosts with broken name resolution
+    private String getLocalHostname() {
+        if (localHostname == null) {
+            try {
+                localHostname = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                localHostname = "localhost";
+            }
+        }
+        return localHostname;
+    }
+    
     private String getLocalIP() throws SocketException {
         Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
         while (interfaces.hasMoreElements()) {
@@ -1,16 +1,27 @@
 package com.security.services;
 
 import com.security.models.ConnectionData;
+import com.security.models.TlsInfo;
+import com.security.utils.IpRangeClassifier;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ThreatDetectionService {
     
     private Set<Integer> suspiciousPorts;
     private Map<String, Integer> ipReputation;
+    private Map<String, Integer> processReputation;
+    private Map<String, Integer> domainReputation;
+    private Map<String, Integer> ja3Reputation;
+    private final IpRangeClassifier ipClassifier = IpRangeClassifier.getInstance();
     
     public ThreatDetectionService() {
         initializeSuspiciousPorts();
-        ipReputation = new HashMap<>();
+        // Read by the scoring threads while flags may be added at any time
+        ipReputation = new ConcurrentHashMap<>();
+        processReputation = new ConcurrentHashMap<>();
+        domainReputation = new ConcurrentHashMap<>();
+        ja3Reputation = new ConcurrentHashMap<>();
     }
     
     private void initializeSuspiciousPorts() {
@@ -39,8 +50,14 @@ public class ThreatDetectionService {
             score += 30;
         }
         
-        // 2. Check for private IPs (usually safe)
-        if (isPrivateIP(connection.getRemoteIP())) {
+        // 2. Check for private IPs (usually safe) and the user's own allow/deny lists
+        int ipClass = ipClassifier.classify(connection.getRemoteIP());
+        if ((ipClass & IpRangeClassifier.DENYLIST) != 0) {
+            score += 60;
+        } else if ((ipClass & IpRangeClassifier.ALLOWLIST) != 0) {
+            score -= 40;
+        }
+        if ((ipClass & IpRangeClassifier.LOCAL) != 0) {
             score -= 15; // Internal connections are safer
         } else {
             score += 25; // External connections are more suspicious
@@ -66,10 +83,43 @@ public class ThreatDetectionService {
             score += rep;
         }
         
-        // 6. Add some randomness (less than before)
+        // 6. Check owning process reputation
+        if (connection.getProcessName() != null) {
+            Integer processRep = processReputation.get(connection.getProcessName().toLowerCase());
+            if (processRep != null) {
+                score += processRep;
+            }
+        }
+        
+        // 7. Check domain reputation (the name itself or any parent domain)
+        if (connection.getRemoteDomain() != null) {
+            Integer domainRep = lookupDomainReputation(connection.getRemoteDomain());
+            if (domainRep != null) {
+                score += domainRep;
+            }
+        }
+        
+        // 8. Check the TLS client fingerprint and the SNI name from captured traffic
+        TlsInfo tls = connection.getFlowStats() != null ? connection.getFlowStats().getTls() : null;
+        if (tls != null) {
+            if (tls.getJa3() != null) {
+                Integer ja3Rep = ja3Reputation.get(tls.getJa3());
+                if (ja3Rep != null) {
+                    score += ja3Rep;
+                }
+            }
+            if (tls.getServerName() != null && !tls.getServerName().equals(connection.getRemoteDomain())) {
+                Integer sniRep = lookupDomainReputation(tls.getServerName());
+                if (sniRep != null) {
+                    score += sniRep;
+                }
+            }
+        }
+        
+        // 9. Add some randomness (less than before)
         score += rand.nextDouble() * 10;
         
-        // 7. State-based scoring
+        // 10. State-based scoring
         if ("ESTABLISHED".equals(connection.getState())) {
             score += 5;
         } else if ("LISTENING".equals(connection.getState())) {
@@ -79,30 +129,39 @@ public class ThreatDetectionService {
         return Math.min(100, Math.max(0, score));
     }
     
-    private boolean isPrivateIP(String ip) {
-        return ip.startsWith("192.168.") || 
-               ip.startsWith("10.") || 
-               ip.startsWith("172.16.") ||
-               ip.startsWith("172.17.") ||
-               ip.startsWith("172.18.") ||
-               ip.startsWith("172.19.") ||
-               ip.startsWith("172.20.") ||
-               ip.startsWith("172.21.") ||
-               ip.startsWith("172.22.") ||
-               ip.startsWith("172.23.") ||
-               ip.startsWith("172.24.") ||
-               ip.startsWith("172.25.") ||
-               ip.startsWith("172.26.") ||
-               ip.startsWith("172.27.") ||
-               ip.startsWith("172.28.") ||
-               ip.startsWith("172.29.") ||
-               ip.startsWith("172.30.") ||
-               ip.startsWith("172.31.") ||
-               ip.equals("127.0.0.1") ||
-               ip.equals("0.0.0.0");
-    }
-    
     public void flagIP(String ip, int severity) {
         ipReputation.put(ip, severity);
     }
+    
+    public boolean isFlagged(String ip) {
+        return ipReputation.containsKey(ip);
+    }
+    
+    private Integer lookupDomainReputation(String domain) {
+        String name = domain.toLowerCase();
+        while (true) {
+            Integer rep = domainReputation.get(name);
+            if (rep != null) {
+                return rep;
+            }
+            int dot = name.indexOf('.');
+            if (dot < 0) {
+                return null;
+            }
+            name = name.substring(dot + 1);
+        }
+    }
+    
+    public void flagDomain(String domain, int severity) {
+        domainReputation.put(domain.toLowerCase(), severity);
+    }
+    
+    // JA3 MD5 hex of a known-bad client (malware families, offensive tooling)
+    public void flagJa3(String ja3, int severity) {
+        ja3Reputation.put(ja3.toLowerCase(), severity);
+    }
+    
+    public void flagProcess(String processName, int severity) {
+        processReputation.put(processName.toLowerCase(), severity);
+    }
 }
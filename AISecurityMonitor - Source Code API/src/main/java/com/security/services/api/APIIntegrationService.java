@@ -1,39 +1,137 @@
 package com.security.services.api;
 
 import com.security.config.APIConfig;
+import com.security.services.intel.IntelGate;
+import com.security.services.intel.LocalIntelService;
+import com.security.services.metrics.IntelLookupEvent;
+import com.security.services.metrics.LatencyHistogram;
+import com.security.services.metrics.MetricsRegistry;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 
 public class APIIntegrationService {
     private final VirusTotalAPI virusTotalAPI;
     private final AbuseIPDBAPI abuseIPDBAPI;
+    private final LocalIntelService localIntel;
+    private final IntelGate intelGate;
     private final ExecutorService executorService;
+    private final ThreadPoolExecutor lookupPool;
+    private final Set<String> pendingLookups = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService cleanupScheduler;
     private final Map<String, Map<String, Object>> cache;
     private static final int CACHE_TIMEOUT_MINUTES = 30;
+    private static final double KNOWN_BAD_SCORE = 25.0; // MEDIUM verdict or worse
+    
+    // Per provider: call latency, and hit = the provider reported something
+    private final LatencyHistogram virusTotalLatency = MetricsRegistry.getInstance().histogram("intel.virustotal");
+    private final LatencyHistogram abuseIPDBLatency = MetricsRegistry.getInstance().histogram("intel.abuseipdb");
+    private final LongAdder cacheHits = MetricsRegistry.getInstance().counter("intel.cache.hit");
+    private final LongAdder cacheMisses = MetricsRegistry.getInstance().counter("intel.cache.miss");
+    private final LongAdder lookupsDropped = MetricsRegistry.getInstance().counter("intel.lookup.dropped");
     
     public APIIntegrationService() {
         this.virusTotalAPI = new VirusTotalAPI();
         this.abuseIPDBAPI = new AbuseIPDBAPI();
+        this.localIntel = LocalIntelService.getInstance();
+        this.intelGate = new IntelGate(localIntel);
         APIConfig config = APIConfig.getInstance();
         this.executorService = Executors.newFixedThreadPool(config.getScanThreads());
         this.cache = new ConcurrentHashMap<>();
+        // Lookups for the analysis path; when the queue is full they are skipped, not waited for
+        this.lookupPool = new ThreadPoolExecutor(config.getIntelLookupThreads(), config.getIntelLookupThreads(),
+                                                 0, TimeUnit.MILLISECONDS,
+                                                 new ArrayBlockingQueue<>(config.getIntelLookupQueue()), r -> {
+            Thread thread = new Thread(r, "intel-lookup");
+            thread.setDaemon(true);
+            return thread;
+        });
         
         // Schedule cache cleanup
-        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-        scheduler.scheduleAtFixedRate(this::cleanCache, 1, 1, TimeUnit.HOURS);
+        this.cleanupScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "intel-cache-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleanupScheduler.scheduleAtFixedRate(this::cleanCache, 1, 1, TimeUnit.HOURS);
+        
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.gauge("intel.cache.size", cache::size);
+        metrics.gauge("intel.lookup.pending", pendingLookups::size);
+        metrics.gauge("intel.cache.hit.ratio", () -> {
+            long hits = cacheHits.sum();
+            long total = hits + cacheMisses.sum();
+            return total == 0 ? 0 : (double) hits / total;
+        });
+    }
+    
+    // For the analysis path, never blocks: null if the gate rules the IP out, else the cached
+    // result. Without one, the remote lookup starts in the background and fills the cache for
+    // later polls of the same IP, and this connection is scored without remote intel.
+    public Map<String, Object> getGatedThreatIntelligence(String ip) {
+        if (!intelGate.shouldLookup(ip)) {
+            return null;
+        }
+        Map<String, Object> cached = getCached(ip);
+        if (cached != null) {
+            return cached;
+        }
+        if (pendingLookups.add(ip)) {
+            try {
+                lookupPool.execute(() -> lookupInBackground(ip));
+            } catch (RejectedExecutionException e) {
+                pendingLookups.remove(ip);
+                lookupsDropped.increment();
+            }
+        }
+        return null;
+    }
+    
+    private void lookupInBackground(String ip) {
+        try {
+            Map<String, Object> result = getThreatIntelligence(ip);
+            if (Boolean.FALSE.equals(result.get("cached")) && !result.containsKey("local_blocklists")) {
+                intelGate.recordLookupResult(ip, ((Number) result.get("combined_threat_score")).doubleValue() >= KNOWN_BAD_SCORE);
+            }
+        } finally {
+            pendingLookups.remove(ip);
+        }
+    }
+    
+    private Map<String, Object> getCached(String ip) {
+        Map<String, Object> cached = cache.get("threat_" + ip);
+        if (cached == null || isCacheExpired(cached)) {
+            return null;
+        }
+        cacheHits.increment();
+        cached.put("cached", true);
+        return cached;
     }
     
     public Map<String, Object> getThreatIntelligence(String ip) {
+        // Addresses on a local blocklist need no remote lookup
+        List<String> lists = localIntel.lookup(ip);
+        if (lists != null) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("ip_address", ip);
+            result.put("timestamp", System.currentTimeMillis());
+            result.put("local_blocklists", lists);
+            result.put("combined_threat_score", (double) localIntel.getListedScore());
+            result.put("overall_verdict", getVerdict(localIntel.getListedScore()));
+            result.put("cached", false);
+            return result;
+        }
+        
         // Check cache first
         String cacheKey = "threat_" + ip;
-        if (cache.containsKey(cacheKey)) {
-            Map<String, Object> cached = cache.get(cacheKey);
-            if (!isCacheExpired(cached)) {
-                cached.put("cached", true);
-                return cached;
-            }
+        Map<String, Object> cached = getCached(ip);
+        if (cached != null) {
+            return cached;
         }
+        cacheMisses.increment();
         
         // Get results from APIs in parallel
         Map<String, Object> result = new HashMap<>();
@@ -42,21 +140,27 @@ public class APIIntegrationService {
         
         try {
             Future<Map<String, Object>> vtFuture = executorService.submit(() -> 
-                virusTotalAPI.analyzeIP(ip));
+                timed("virustotal", ip, virusTotalLatency, () -> virusTotalAPI.analyzeIP(ip)));
             Future<Map<String, Object>> abuseFuture = executorService.submit(() -> 
-                abuseIPDBAPI.checkIP(ip));
+                timed("abuseipdb", ip, abuseIPDBLatency, () -> abuseIPDBAPI.checkIP(ip)));
             
             Map<String, Object> vtResult = vtFuture.get(10, TimeUnit.SECONDS);
             Map<String, Object> abuseResult = abuseFuture.get(10, TimeUnit.SECONDS);
             
             result.put("virustotal", vtResult);
             result.put("abuseipdb", abuseResult);
+            countHit("intel.virustotal", (int) vtResult.getOrDefault("malicious", 0) +
+                                         (int) vtResult.getOrDefault("suspicious", 0) > 0);
+            countHit("intel.abuseipdb", (int) abuseResult.getOrDefault("abuse_confidence_score", 0) > 0);
             
             // Calculate combined threat score
             double threatScore = calculateThreatScore(vtResult, abuseResult);
             result.put("combined_threat_score", threatScore);
             result.put("overall_verdict", getVerdict(threatScore));
             result.put("cached", false);
+            if (threatScore >= KNOWN_BAD_SCORE) {
+                intelGate.addKnownBad(ip);
+            }
             
             // Cache the result
             result.put("cache_time", System.currentTimeMillis());
@@ -72,6 +176,30 @@ public class APIIntegrationService {
         return result;
     }
     
+    private static <T> T timed(String provider, String ip, LatencyHistogram histogram, Callable<T> call) throws Exception {
+        IntelLookupEvent event = new IntelLookupEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = call.call();
+            failed = false;
+            return result;
+        } finally {
+            histogram.recordSince(start);
+            if (event.shouldCommit()) {
+                event.ip = ip;
+                event.provider = provider;
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+    
+    private static void countHit(String provider, boolean hit) {
+        MetricsRegistry.getInstance().counter(provider + (hit ? ".hit" : ".miss")).increment();
+    }
+    
     private double calculateThreatScore(Map<String, Object> vtResult, Map<String, Object> abuseResult) {
         double score = 0.0;
         
@@ -118,7 +246,11 @@ public class APIIntegrationService {
         });
     }
     
+    public IntelGate getIntelGate() { return intelGate; }
+    
     public void close() {
+        cleanupScheduler.shutdownNow();
+        lookupPool.shutdownNow();
         executorService.shutdown();
         try {
             if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
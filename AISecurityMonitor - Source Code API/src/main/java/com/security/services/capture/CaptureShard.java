@@ -0,0 +1,84 @@
+package com.security.services.capture;
+
+import com.security.services.dns.PassiveDnsObserver;
+import java.util.concurrent.locks.LockSupport;
+
+// One flow worker: a frame ring fed by the capture thread and a FlowCollector only this
+// worker writes to. Every packet of a flow hashes to the same shard, so shards share
+// nothing and need no locks.
+final class CaptureShard implements Runnable {
+    private static final int DRAIN_BATCH = 256;
+    private static final long IDLE_PARK_NANOS = 50_000;
+    private static final long EVICT_INTERVAL_MS = 10;
+    private static final int EVICT_BATCH_SLOTS = 1024;
+    
+    private final int index;
+    private final FrameRing ring;
+    private final FlowCollector collector;
+    private final int linkType;
+    private final long idleTimeoutMillis;
+    private final FrameRing.FrameHandler handler;
+    
+    private volatile boolean running = true;
+    private volatile long ringDrops;
+    private Thread thread;
+    private long lastEviction = 0;
+    
+    CaptureShard(int index, int ringSlots, int slotSize, int maxFlows, int linkType, long idleTimeoutMillis,
+                 PassiveDnsObserver dnsObserver) {
+        this.index = index;
+        this.ring = new FrameRing(ringSlots, slotSize);
+        this.collector = new FlowCollector(maxFlows, dnsObserver);
+        this.linkType = linkType;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.handler = (frame, length, timestamp) -> collector.onFrame(frame, length, this.linkType, timestamp);
+    }
+    
+    void start() {
+        thread = new Thread(this, "capture-shard-" + index);
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+    
+    // Capture thread only
+    void offer(byte[] frame, int length, long timestamp) {
+        if (!ring.offer(frame, length, timestamp)) {
+            ringDrops++;
+        }
+    }
+    
+    @Override
+    public void run() {
+        while (running || !ring.isEmpty()) {
+            int drained = ring.drain(handler, DRAIN_BATCH);
+            
+            long now = System.currentTimeMillis();
+            if (now - lastEviction >= EVICT_INTERVAL_MS) {
+                collector.evictIdle(now, idleTimeoutMillis, EVICT_BATCH_SLOTS, null);
+                lastEviction = now;
+            }
+            
+            if (drained == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+    
+    FlowCollector getCollector() { return collector; }
+    
+    // Frames the capture thread could not hand over because this worker fell behind
+    long getRingDrops() { return ringDrops; }
+}
@@ -0,0 +1,89 @@
+package com.security.services.capture;
+
+import com.security.models.ConnectionData;
+import com.security.models.FlowStats;
+import com.security.models.TlsInfo;
+import com.security.services.dns.PassiveDnsObserver;
+
+// Decoder plus flow table owned by a single thread. Live capture and pcap replay both
+// build flows through this class, so they produce identical features.
+final class FlowCollector {
+    private final PacketDecoder decoder = new PacketDecoder();
+    private final TlsClientHelloParser tlsParser = new TlsClientHelloParser();
+    private final FlowTable table;
+    private final PassiveDnsObserver dnsObserver;
+    
+    // Written by the owning thread only
+    private volatile long packets;
+    private volatile long decodedPackets;
+    private volatile long evictedFlows;
+    private volatile long clientHellos;
+    
+    // dnsObserver may be null
+    FlowCollector(int maxFlows, PassiveDnsObserver dnsObserver) {
+        this.table = new FlowTable(maxFlows);
+        this.dnsObserver = dnsObserver;
+    }
+    
+    void onFrame(byte[] frame, int length, int linkType, long timestamp) {
+        packets++;
+        if (!decoder.decode(frame, length, linkType)) {
+            return;
+        }
+        decodedPackets++;
+        
+        if (!table.update(decoder.srcIp, decoder.srcPort, decoder.dstIp, decoder.dstPort, decoder.protocol,
+                          decoder.ipLength, decoder.tcpFlags, timestamp)) {
+            return;
+        }
+        
+        // Only what the snaplen actually captured
+        int captured = Math.min(decoder.payloadLength, length - decoder.payloadOffset);
+        if (captured <= 0) {
+            return;
+        }
+        
+        if (decoder.protocol == PacketDecoder.PROTO_TCP) {
+            if (TlsClientHelloParser.isClientHello(frame, decoder.payloadOffset, captured)) {
+                TlsInfo tls = tlsParser.parse(frame, decoder.payloadOffset, captured);
+                if (tls != null) {
+                    clientHellos++;
+                    table.attachTls(decoder.srcIp, decoder.srcPort, decoder.dstIp, decoder.dstPort,
+                                    decoder.protocol, tls);
+                }
+            }
+        } else if (dnsObserver != null && decoder.srcPort == 53) {
+            dnsObserver.observe(frame, decoder.payloadOffset, captured);
+        }
+    }
+    
+    int evictIdle(long now, long idleTimeoutMillis, int maxSlots, FlowTable.EvictionListener listener) {
+        int evicted = table.evictIdle(now, idleTimeoutMillis, maxSlots, listener);
+        evictedFlows += evicted;
+        return evicted;
+    }
+    
+    void drain(FlowTable.EvictionListener listener) {
+        evictedFlows += table.size();
+        table.drain(listener);
+    }
+    
+    // Safe from any thread
+    FlowStats lookup(ConnectionData connection) {
+        int localIp = PacketDecoder.parseIPv4(connection.getLocalIP());
+        int remoteIp = PacketDecoder.parseIPv4(connection.getRemoteIP());
+        if (localIp == 0 || remoteIp == 0) {
+            return null;
+        }
+        
+        int protocol = "UDP".equalsIgnoreCase(connection.getProtocol()) ? PacketDecoder.PROTO_UDP : PacketDecoder.PROTO_TCP;
+        return table.lookup(localIp, connection.getLocalPort(), remoteIp, connection.getRemotePort(), protocol);
+    }
+    
+    long getPackets() { return packets; }
+    long getDecodedPackets() { return decodedPackets; }
+    long getEvictedFlows() { return evictedFlows; }
+    long getClientHellos() { return clientHellos; }
+    int getActiveFlows() { return table.size(); }
+    long getInsertFailures() { return table.getInsertFailures(); }
+}
@@ -0,0 +1,289 @@
+package com.security.services.capture;
+
+import com.security.models.FlowStats;
+import com.security.models.TlsInfo;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// Open-addressing flow table over parallel primitive arrays: no per-flow objects, no resizing.
+// The IPv4 5-tuple is packed into two longs with the endpoints in canonical order, so both
+// directions of a conversation land in the same slot.
+//
+// One writer thread calls update()/evictIdle(). Any thread may call lookup(); readers never
+// block the writer and retry if a write raced with them (sequence lock).
+public final class FlowTable {
+    private static final VarHandle VERSION;
+    private static final int INITIATOR_A = 0x100;
+    
+    static {
+        try {
+            VERSION = MethodHandles.lookup().findVarHandle(FlowTable.class, "version", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
+    private final int capacity;
+    private final int mask;
+    private final int maxFlows;
+    
+    // keyLo == 0 marks an empty slot (bit 0 is always set for live keys)
+    private final long[] keyHi;
+    private final long[] keyLo;
+    private final long[] firstSeen;
+    private final long[] lastSeen;
+    private final long[] bytesA;
+    private final long[] bytesB;
+    private final int[] packetsA;
+    private final int[] packetsB;
+    private final int[] flags; // TCP flags seen (low byte) | INITIATOR_A
+    private final TlsInfo[] tls; // Only set for flows that sent a ClientHello
+    
+    private volatile int size;
+    private long version;
+    private int evictCursor;
+    private long insertFailures;
+    
+    public FlowTable(int maxFlows) {
+        // Keep load factor <= 0.5 so linear probe chains stay short
+        int cap = Integer.highestOneBit(Math.max(16, maxFlows) * 2 - 1) << 1;
+        this.capacity = cap;
+        this.mask = cap - 1;
+        this.maxFlows = Math.max(16, maxFlows);
+        
+        this.keyHi = new long[cap];
+        this.keyLo = new long[cap];
+        this.firstSeen = new long[cap];
+        this.lastSeen = new long[cap];
+        this.bytesA = new long[cap];
+        this.bytesB = new long[cap];
+        this.packetsA = new int[cap];
+        this.packetsB = new int[cap];
+        this.flags = new int[cap];
+        this.tls = new TlsInfo[cap];
+    }
+    
+    public interface EvictionListener {
+        // Counters are reported with the initiator as "src"
+        void flowEvicted(int srcIp, int srcPort, int dstIp, int dstPort, int protocol,
+                         long srcBytes, long dstBytes, int srcPackets, int dstPackets,
+                         long firstSeen, long lastSeen, int tcpFlags, TlsInfo tls);
+    }
+    
+    // Writer thread only. Returns false if the flow is new and the table is full.
+    public boolean update(int srcIp, int srcPort, int dstIp, int dstPort, int protocol,
+                          int bytes, int tcpFlags, long timestamp) {
+        boolean fromA = isCanonical(srcIp, srcPort, dstIp, dstPort);
+        long hi = fromA ? packHi(srcIp, dstIp) : packHi(dstIp, srcIp);
+        long lo = fromA ? packLo(srcPort, dstPort, protocol) : packLo(dstPort, srcPort, protocol);
+        
+        int slot = find(hi, lo);
+        if (slot < 0) {
+            if (size >= maxFlows) {
+                insertFailures++;
+                return false;
+            }
+            slot = -slot - 1;
+        }
+        
+        beginWrite();
+        if (keyLo[slot] == 0) {
+            keyHi[slot] = hi;
+            keyLo[slot] = lo;
+            firstSeen[slot] = timestamp;
+            bytesA[slot] = 0;
+            bytesB[slot] = 0;
+            packetsA[slot] = 0;
+            packetsB[slot] = 0;
+            flags[slot] = fromA ? INITIATOR_A : 0;
+            tls[slot] = null;
+            size++;
+        }
+        if (fromA) {
+            bytesA[slot] += bytes;
+            packetsA[slot]++;
+        } else {
+            bytesB[slot] += bytes;
+            packetsB[slot]++;
+        }
+        flags[slot] |= tcpFlags & 0xFF;
+        lastSeen[slot] = timestamp;
+        endWrite();
+        return true;
+    }
+    
+    // Writer thread only. Attaches ClientHello metadata to an existing flow.
+    public void attachTls(int srcIp, int srcPort, int dstIp, int dstPort, int protocol, TlsInfo info) {
+        boolean fromA = isCanonical(srcIp, srcPort, dstIp, dstPort);
+        long hi = fromA ? packHi(srcIp, dstIp) : packHi(dstIp, srcIp);
+        long lo = fromA ? packLo(srcPort, dstPort, protocol) : packLo(dstPort, srcPort, protocol);
+        
+        int slot = find(hi, lo);
+        if (slot >= 0) {
+            beginWrite();
+            tls[slot] = info;
+            endWrite();
+        }
+    }
+    
+    // Writer thread only. Examines up to maxSlots slots from where the last call stopped,
+    // so a full sweep is spread over many calls instead of pausing capture.
+    public int evictIdle(long now, long idleTimeoutMillis, int maxSlots, EvictionListener listener) {
+        int evicted = 0;
+        for (int examined = 0; examined < maxSlots && size > 0; examined++) {
+            int slot = evictCursor;
+            if (keyLo[slot] != 0 && now - lastSeen[slot] >= idleTimeoutMillis) {
+                if (listener != null) {
+                    notifyEvicted(slot, listener);
+                }
+                remove(slot);
+                evicted++;
+                // Backward shift may have moved another entry into this slot; look at it again
+                continue;
+            }
+            evictCursor = (slot + 1) & mask;
+        }
+        return evicted;
+    }
+    
+    // Writer thread only: reports and removes every flow, e.g. at the end of a replay
+    public void drain(EvictionListener listener) {
+        for (int slot = 0; slot < capacity && size > 0; ) {
+            if (keyLo[slot] != 0) {
+                notifyEvicted(slot, listener);
+                remove(slot);
+            } else {
+                slot++;
+            }
+        }
+    }
+    
+    // Safe from any thread. Returns null if the flow is unknown.
+    public FlowStats lookup(int ip1, int port1, int ip2, int port2, int protocol) {
+        boolean oneIsA = isCanonical(ip1, port1, ip2, port2);
+        long hi = oneIsA ? packHi(ip1, ip2) : packHi(ip2, ip1);
+        long lo = oneIsA ? packLo(port1, port2, protocol) : packLo(port2, port1, protocol);
+        
+        while (true) {
+            long v = (long) VERSION.getAcquire(this);
+            if ((v & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            
+            FlowStats stats = null;
+            int slot = find(hi, lo);
+            if (slot >= 0) {
+                boolean initiatorA = (flags[slot] & INITIATOR_A) != 0;
+                stats = initiatorA
+                    ? new FlowStats(bytesA[slot], bytesB[slot], packetsA[slot], packetsB[slot],
+                                    firstSeen[slot], lastSeen[slot], flags[slot] & 0xFF, tls[slot])
+                    : new FlowStats(bytesB[slot], bytesA[slot], packetsB[slot], packetsA[slot],
+                                    firstSeen[slot], lastSeen[slot], flags[slot] & 0xFF, tls[slot]);
+            }
+            
+            VarHandle.loadLoadFence();
+            if ((long) VERSION.getAcquire(this) == v) {
+                return stats;
+            }
+        }
+    }
+    
+    // Slot index if present, otherwise -(insertion slot) - 1
+    private int find(long hi, long lo) {
+        int slot = (int) mix(hi, lo) & mask;
+        for (int probes = 0; probes < capacity; probes++) {
+            long k = keyLo[slot];
+            if (k == 0) {
+                return -slot - 1;
+            }
+            if (k == lo && keyHi[slot] == hi) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1; // Only reachable by a reader racing the writer; the version check retries
+    }
+    
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void remove(int slot) {
+        beginWrite();
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keyLo[next] != 0) {
+            int home = (int) mix(keyHi[next], keyLo[next]) & mask;
+            // Move next into the hole if its home slot is not between hole and next (cyclically)
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keyHi[hole] = keyHi[next];
+                keyLo[hole] = keyLo[next];
+                firstSeen[hole] = firstSeen[next];
+                lastSeen[hole] = lastSeen[next];
+                bytesA[hole] = bytesA[next];
+                bytesB[hole] = bytesB[next];
+                packetsA[hole] = packetsA[next];
+                packetsB[hole] = packetsB[next];
+                flags[hole] = flags[next];
+                tls[hole] = tls[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keyHi[hole] = 0;
+        keyLo[hole] = 0;
+        tls[hole] = null;
+        size--;
+        endWrite();
+    }
+    
+    private void notifyEvicted(int slot, EvictionListener listener) {
+        int aIp = (int) (keyHi[slot] >>> 32);
+        int bIp = (int) keyHi[slot];
+        int aPort = (int) (keyLo[slot] >>> 40) & 0xFFFF;
+        int bPort = (int) (keyLo[slot] >>> 24) & 0xFFFF;
+        int protocol = (int) (keyLo[slot] >>> 16) & 0xFF;
+        int tcpFlags = flags[slot] & 0xFF;
+        
+        if ((flags[slot] & INITIATOR_A) != 0) {
+            listener.flowEvicted(aIp, aPort, bIp, bPort, protocol, bytesA[slot], bytesB[slot],
+                packetsA[slot], packetsB[slot], firstSeen[slot], lastSeen[slot], tcpFlags, tls[slot]);
+        } else {
+            listener.flowEvicted(bIp, bPort, aIp, aPort, protocol, bytesB[slot], bytesA[slot],
+                packetsB[slot], packetsA[slot], firstSeen[slot], lastSeen[slot], tcpFlags, tls[slot]);
+        }
+    }
+    
+    private void beginWrite() {
+        VERSION.setOpaque(this, version + 1);
+        VarHandle.storeStoreFence();
+    }
+    
+    private void endWrite() {
+        VERSION.setRelease(this, version + 1);
+    }
+    
+    private static boolean isCanonical(int ip1, int port1, int ip2, int port2) {
+        int cmp = Integer.compareUnsigned(ip1, ip2);
+        return cmp < 0 || (cmp == 0 && port1 <= port2);
+    }
+    
+    static long packHi(int aIp, int bIp) {
+        return ((long) aIp << 32) | (bIp & 0xFFFFFFFFL);
+    }
+    
+    static long packLo(int aPort, int bPort, int protocol) {
+        return ((long) (aPort & 0xFFFF) << 40) | ((long) (bPort & 0xFFFF) << 24)
+             | ((long) (protocol & 0xFF) << 16) | 1L;
+    }
+    
+    private static long mix(long hi, long lo) {
+        long h = hi * 0x9E3779B97F4A7C15L ^ lo;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        return h ^ (h >>> 33);
+    }
+    
+    public int size() { return size; }
+    public int getCapacity() { return capacity; }
+    public int getMaxFlows() { return maxFlows; }
+    public long getInsertFailures() { return insertFailures; }
+}
@@ -0,0 +1,73 @@
+package com.security.services.capture;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Single-producer/single-consumer ring of preallocated frame buffers. The capture thread
+// copies each frame into a free slot; the shard worker reads it in place. Nothing is
+// allocated per packet and neither side ever blocks: a full ring rejects the frame.
+final class FrameRing {
+    interface FrameHandler {
+        void onFrame(byte[] frame, int length, long timestamp);
+    }
+    
+    private final byte[][] frames;
+    private final int[] lengths;
+    private final long[] timestamps;
+    private final int mask;
+    private final int slotSize;
+    
+    // Next slot to read (consumer) and next slot to write (producer)
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    
+    // Producer's last view of head, so a non-full ring costs no cross-core read
+    private long cachedHead;
+    
+    FrameRing(int slots, int slotSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, slots) * 2 - 1);
+        this.frames = new byte[capacity][slotSize];
+        this.lengths = new int[capacity];
+        this.timestamps = new long[capacity];
+        this.mask = capacity - 1;
+        this.slotSize = slotSize;
+    }
+    
+    // Producer only. Returns false if the consumer has fallen a full ring behind.
+    boolean offer(byte[] frame, int length, long timestamp) {
+        long t = tail.get();
+        if (t - cachedHead >= frames.length) {
+            cachedHead = head.get();
+            if (t - cachedHead >= frames.length) {
+                return false;
+            }
+        }
+        
+        int slot = (int) t & mask;
+        int copied = Math.min(length, slotSize);
+        System.arraycopy(frame, 0, frames[slot], 0, copied);
+        lengths[slot] = copied;
+        timestamps[slot] = timestamp;
+        tail.lazySet(t + 1); // Publishes the slot contents
+        return true;
+    }
+    
+    // Consumer only. Hands up to max frames to the handler and returns how many there were.
+    int drain(FrameHandler handler, int max) {
+        long h = head.get();
+        int available = (int) Math.min(max, tail.get() - h);
+        for (int i = 0; i < available; i++) {
+            int slot = (int) (h + i) & mask;
+            handler.onFrame(frames[slot], lengths[slot], timestamps[slot]);
+        }
+        if (available > 0) {
+            head.lazySet(h + available); // Slots may be overwritten from here on
+        }
+        return available;
+    }
+    
+    boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+    
+    int getCapacity() { return frames.length; }
+}
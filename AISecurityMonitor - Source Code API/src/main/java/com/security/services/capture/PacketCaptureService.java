@@ -0,0 +1,303 @@
+package com.security.services.capture;
+
+import com.security.config.APIConfig;
+import com.security.models.ConnectionData;
+import com.security.models.FlowStats;
+import com.security.services.dns.PassiveDnsObserver;
+import org.pcap4j.core.*;
+
+// Passive capture: raw frames -> FlowCollector (PacketDecoder + FlowTable).
+// With capture.shards > 1 the capture thread only reads the flow key and hands each frame to
+// the worker shard that owns that flow; otherwise flows are built on the capture thread.
+// Flow tables are preallocated for capture.max.flows, so memory stays fixed under any load.
+public class PacketCaptureService {
+    private static final int READ_TIMEOUT_MS = 100;
+    private static final long EVICT_INTERVAL_MS = 10;
+    private static final int EVICT_BATCH_SLOTS = 1024;
+    
+    private final APIConfig config;
+    private final int maxFlows;
+    private final int shardCount;
+    private final long idleTimeoutMillis;
+    private final PassiveDnsObserver dnsObserver;
+    
+    // One collector per shard; shards is null when the capture thread builds flows itself
+    private volatile FlowCollector[] collectors;
+    private volatile CaptureShard[] shards;
+    private final PacketDecoder dispatchDecoder = new PacketDecoder();
+    private volatile long packets;
+    
+    private volatile boolean running = false;
+    private volatile PcapHandle handle;
+    private Thread captureThread;
+    private long lastEviction = 0;
+    
+    public PacketCaptureService() {
+        this(null);
+    }
+    
+    public PacketCaptureService(PassiveDnsObserver dnsObserver) {
+        this.config = APIConfig.getInstance();
+        this.dnsObserver = dnsObserver;
+        this.maxFlows = config.getCaptureMaxFlows();
+        this.shardCount = config.getCaptureShards();
+        this.idleTimeoutMillis = config.getCaptureIdleTimeoutSeconds() * 1000L;
+    }
+    
+    public synchronized boolean start() {
+        if (running) {
+            return true;
+        }
+        
+        try {
+            PcapNetworkInterface nif = selectInterface(config.getCaptureInterface());
+            if (nif == null) {
+                System.err.println("Packet capture disabled: no usable network interface");
+                return false;
+            }
+            
+            handle = new PcapHandle.Builder(nif.getName())
+                .snaplen(config.getCaptureSnaplen())
+                .promiscuousMode(PcapNetworkInterface.PromiscuousMode.NONPROMISCUOUS)
+                .timeoutMillis(READ_TIMEOUT_MS)
+                .bufferSize(config.getCaptureBufferMB() * 1024 * 1024)
+                .build();
+        } catch (Throwable e) {
+            // PcapNativeException, or UnsatisfiedLinkError when libpcap/Npcap is not installed
+            System.err.println("Packet capture unavailable: " + e.getMessage());
+            return false;
+        }
+        
+        running = true;
+        captureThread = new Thread(this::captureLoop, "packet-capture");
+        captureThread.setDaemon(true);
+        captureThread.start();
+        System.out.println("Packet capture started on " + handle + " with " + shardCount + " flow shard(s)");
+        return true;
+    }
+    
+    public synchronized void stop() {
+        running = false;
+        if (captureThread != null) {
+            try {
+                captureThread.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            captureThread = null;
+        }
+        CaptureShard[] s = shards;
+        if (s != null) {
+            for (CaptureShard shard : s) {
+                shard.stop();
+            }
+            shards = null;
+            collectors = null;
+        }
+        if (handle != null) {
+            handle.close();
+            handle = null;
+        }
+    }
+    
+    private void captureLoop() {
+        int linkType = handle.getDlt().value();
+        
+        while (running) {
+            try {
+                byte[] frame = handle.getNextRawPacket();
+                long now = System.currentTimeMillis();
+                if (frame != null) {
+                    processFrame(frame, frame.length, linkType, now);
+                }
+                if (now - lastEviction >= EVICT_INTERVAL_MS) {
+                    // A slice of the table per call; a full sweep takes a few seconds.
+                    // Shard workers evict their own tables.
+                    FlowCollector[] c = collectors;
+                    if (c != null && shards == null) {
+                        c[0].evictIdle(now, idleTimeoutMillis, EVICT_BATCH_SLOTS, null);
+                    }
+                    lastEviction = now;
+                }
+            } catch (NotOpenException e) {
+                break;
+            } catch (Exception e) {
+                System.err.println("Packet capture error: " + e.getMessage());
+            }
+        }
+    }
+    
+    // Capture thread only
+    void processFrame(byte[] frame, int length, int linkType, long timestamp) {
+        packets++;
+        FlowCollector[] c = collectors;
+        if (c == null) {
+            c = allocate(linkType);
+        }
+        
+        CaptureShard[] s = shards;
+        if (s == null) {
+            c[0].onFrame(frame, length, linkType, timestamp);
+            return;
+        }
+        
+        // Frames without a flow key never leave the capture thread
+        PacketDecoder d = dispatchDecoder;
+        if (d.decode(frame, length, linkType)) {
+            s[shardFor(d.srcIp, d.srcPort, d.dstIp, d.dstPort, d.protocol, s.length)].offer(frame, length, timestamp);
+        }
+    }
+    
+    // Allocated on the first packet, so a disabled capture costs no memory
+    private FlowCollector[] allocate(int linkType) {
+        FlowCollector[] c = new FlowCollector[shardCount];
+        if (shardCount == 1) {
+            c[0] = new FlowCollector(maxFlows, dnsObserver);
+            collectors = c;
+            return c;
+        }
+        
+        int flowsPerShard = (maxFlows + shardCount - 1) / shardCount;
+        CaptureShard[] s = new CaptureShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            s[i] = new CaptureShard(i, config.getCaptureRingSlots(), config.getCaptureSnaplen(),
+                                    flowsPerShard, linkType, idleTimeoutMillis, dnsObserver);
+            c[i] = s[i].getCollector();
+            s[i].start();
+        }
+        shards = s;
+        collectors = c;
+        return c;
+    }
+    
+    // Direction-independent, so both sides of a conversation reach the same shard
+    static int shardFor(int ip1, int port1, int ip2, int port2, int protocol, int shardCount) {
+        int h = (ip1 ^ ip2) * 0x9E3779B1 ^ (((port1 ^ port2) << 8) | protocol);
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return (h & 0x7FFFFFFF) % shardCount;
+    }
+    
+    // Counters for the connection's flow, or null if capture has not seen it
+    public FlowStats lookup(ConnectionData connection) {
+        FlowCollector[] c = collectors;
+        if (c == null) {
+            return null;
+        }
+        if (c.length == 1) {
+            return c[0].lookup(connection);
+        }
+        
+        int localIp = PacketDecoder.parseIPv4(connection.getLocalIP());
+        int remoteIp = PacketDecoder.parseIPv4(connection.getRemoteIP());
+        int protocol = "UDP".equalsIgnoreCase(connection.getProtocol()) ? PacketDecoder.PROTO_UDP : PacketDecoder.PROTO_TCP;
+        int shard = shardFor(localIp, connection.getLocalPort(), remoteIp, connection.getRemotePort(), protocol, c.length);
+        return c[shard].lookup(connection);
+    }
+    
+    private PcapNetworkInterface selectInterface(String name) throws PcapNativeException {
+        if (name != null && !name.isEmpty()) {
+            return Pcaps.getDevByName(name);
+        }
+        
+        // First interface that is up, not loopback, and has an IPv4 address
+        for (PcapNetworkInterface nif : Pcaps.findAllDevs()) {
+            if (nif.isLoopBack() || !nif.isUp()) {
+                continue;
+            }
+            for (PcapAddress address : nif.getAddresses()) {
+                if (address.getAddress() instanceof java.net.Inet4Address) {
+                    return nif;
+                }
+            }
+        }
+        return null;
+    }
+    
+    public boolean isRunning() { return running; }
+    
+    public int getShardCount() { return shardCount; }
+    
+    public long getPacketsCaptured() { return packets; }
+    
+    // Totals below are summed over all shards
+    public long getPacketsDecoded() {
+        long total = 0;
+        FlowCollector[] c = collectors;
+        if (c != null) {
+            for (FlowCollector collector : c) {
+                total += collector.getDecodedPackets();
+            }
+        }
+        return total;
+    }
+    
+    public long getFlowsEvicted() {
+        long total = 0;
+        FlowCollector[] c = collectors;
+        if (c != null) {
+            for (FlowCollector collector : c) {
+                total += collector.getEvictedFlows();
+            }
+        }
+        return total;
+    }
+    
+    public int getActiveFlows() {
+        int total = 0;
+        FlowCollector[] c = collectors;
+        if (c != null) {
+            for (FlowCollector collector : c) {
+                total += collector.getActiveFlows();
+            }
+        }
+        return total;
+    }
+    
+    // TLS ClientHellos parsed and attached to flows
+    public long getClientHellos() {
+        long total = 0;
+        FlowCollector[] c = collectors;
+        if (c != null) {
+            for (FlowCollector collector : c) {
+                total += collector.getClientHellos();
+            }
+        }
+        return total;
+    }
+    
+    // New flows not tracked because a flow table was full
+    public long getFlowTableOverflows() {
+        long total = 0;
+        FlowCollector[] c = collectors;
+        if (c != null) {
+            for (FlowCollector collector : c) {
+                total += collector.getInsertFailures();
+            }
+        }
+        return total;
+    }
+    
+    // Frames dropped because a shard worker fell a full ring behind
+    public long getShardDrops() {
+        long total = 0;
+        CaptureShard[] s = shards;
+        if (s != null) {
+            for (CaptureShard shard : s) {
+                total += shard.getRingDrops();
+            }
+        }
+        return total;
+    }
+    
+    // Packets dropped by the kernel/driver because we did not keep up
+    public long getKernelDrops() {
+        try {
+            PcapHandle h = handle;
+            return h != null ? h.getStats().getNumPacketsDropped() : 0;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.security.services.capture;
+
+import com.security.utils.IpRangeClassifier;
+
+// Reads L2-L4 headers straight out of a raw frame without building pcap4j Packet objects.
+// One instance per capture thread; fields are overwritten by every decode() call.
+public final class PacketDecoder {
+    // libpcap DLT values
+    public static final int DLT_NULL = 0;
+    public static final int DLT_EN10MB = 1;
+    public static final int DLT_RAW = 101;
+    public static final int DLT_LINUX_SLL = 113;
+    
+    public static final int PROTO_TCP = 6;
+    public static final int PROTO_UDP = 17;
+    
+    public static final int TCP_FIN = 0x01;
+    public static final int TCP_SYN = 0x02;
+    public static final int TCP_RST = 0x04;
+    public static final int TCP_ACK = 0x10;
+    
+    public int ipVersion;
+    public int srcIp;
+    public int dstIp;
+    public int srcPort;
+    public int dstPort;
+    public int protocol;
+    public int ipLength;
+    public int tcpFlags;
+    public int payloadOffset;
+    public int payloadLength;
+    
+    // Returns true only for IPv4 TCP/UDP packets; everything else has no flow key
+    public boolean decode(byte[] frame, int length, int linkType) {
+        ipVersion = 0;
+        int offset = linkHeaderLength(frame, length, linkType);
+        if (offset < 0 || offset + 20 > length) {
+            return false;
+        }
+        
+        ipVersion = (frame[offset] >> 4) & 0x0F;
+        if (ipVersion != 4) {
+            return false;
+        }
+        
+        int ihl = (frame[offset] & 0x0F) * 4;
+        ipLength = readShort(frame, offset + 2);
+        protocol = frame[offset + 9] & 0xFF;
+        srcIp = readInt(frame, offset + 12);
+        dstIp = readInt(frame, offset + 16);
+        
+        // Only the first fragment carries the transport header
+        int fragmentOffset = readShort(frame, offset + 6) & 0x1FFF;
+        int l4 = offset + ihl;
+        int ipEnd = Math.min(length, offset + ipLength);
+        if (fragmentOffset != 0 || ihl < 20) {
+            return false;
+        }
+        
+        if (protocol == PROTO_TCP && l4 + 20 <= length) {
+            srcPort = readShort(frame, l4);
+            dstPort = readShort(frame, l4 + 2);
+            tcpFlags = frame[l4 + 13] & 0x3F;
+            int dataOffset = ((frame[l4 + 12] >> 4) & 0x0F) * 4;
+            payloadOffset = l4 + dataOffset;
+        } else if (protocol == PROTO_UDP && l4 + 8 <= length) {
+            srcPort = readShort(frame, l4);
+            dstPort = readShort(frame, l4 + 2);
+            tcpFlags = 0;
+            payloadOffset = l4 + 8;
+        } else {
+            return false;
+        }
+        
+        payloadLength = Math.max(0, ipEnd - payloadOffset);
+        return true;
+    }
+    
+    private int linkHeaderLength(byte[] frame, int length, int linkType) {
+        switch (linkType) {
+            case DLT_EN10MB: {
+                int offset = 12;
+                int etherType = length >= 14 ? readShort(frame, offset) : -1;
+                // Skip 802.1Q / 802.1ad VLAN tags
+                while ((etherType == 0x8100 || etherType == 0x88A8) && offset + 6 <= length) {
+                    offset += 4;
+                    etherType = readShort(frame, offset);
+                }
+                return etherType == 0x0800 || etherType == 0x86DD ? offset + 2 : -1;
+            }
+            case DLT_LINUX_SLL:
+                return length >= 16 ? 16 : -1;
+            case DLT_NULL:
+                return 4;
+            case DLT_RAW:
+                return 0;
+            default:
+                return -1;
+        }
+    }
+    
+    static int readShort(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+    }
+    
+    static int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+             | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+    }
+    
+    public static String ipToString(int ip) {
+        return ((ip >>> 24) & 0xFF) + "." + ((ip >>> 16) & 0xFF) + "." + ((ip >>> 8) & 0xFF) + "." + (ip & 0xFF);
+    }
+    
+    // Returns 0 for anything that is not a dotted IPv4 literal (0.0.0.0 never has flows)
+    public static int parseIPv4(String ip) {
+        long value = IpRangeClassifier.parseIPv4(ip);
+        return value < 0 ? 0 : (int) value;
+    }
+}
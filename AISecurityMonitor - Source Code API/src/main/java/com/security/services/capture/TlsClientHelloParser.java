@@ -0,0 +1,209 @@
+package com.security.services.capture;
+
+import com.security.models.TlsInfo;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+// Reads SNI, ALPN and the JA3 fingerprint straight out of a captured TLS ClientHello.
+// The JA3 string is written as ASCII into a reused buffer and hashed by a reused MD5,
+// so a parse allocates only the strings it returns. One instance per capture thread.
+public final class TlsClientHelloParser {
+    private static final int EXT_SERVER_NAME = 0;
+    private static final int EXT_SUPPORTED_GROUPS = 10;
+    private static final int EXT_EC_POINT_FORMATS = 11;
+    private static final int EXT_ALPN = 16;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    private final MessageDigest md5;
+    private byte[] ja3 = new byte[1024];
+    private int ja3Length;
+    private final int[] groups = new int[64];
+    private final int[] pointFormats = new int[16];
+    
+    public TlsClientHelloParser() {
+        try {
+            md5 = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+    
+    // Cheap pre-check on the first payload bytes: TLS handshake record holding a ClientHello
+    public static boolean isClientHello(byte[] data, int offset, int length) {
+        return length >= 6 && data[offset] == 0x16 && data[offset + 1] == 0x03 && data[offset + 5] == 0x01;
+    }
+    
+    // Returns null if this is not a well-formed ClientHello
+    public TlsInfo parse(byte[] data, int offset, int length) {
+        // The pre-check passes on 6 bytes; the handshake header alone takes 9
+        if (length < 9 || !isClientHello(data, offset, length)) {
+            return null;
+        }
+        
+        int end = offset + length;
+        int hsLength = ((data[offset + 6] & 0xFF) << 16) | PacketDecoder.readShort(data, offset + 7);
+        boolean complete = offset + 9 + hsLength <= end;
+        end = Math.min(end, offset + 9 + hsLength);
+        
+        int p = offset + 9;
+        if (p + 35 > end) {
+            return null;
+        }
+        int version = PacketDecoder.readShort(data, p);
+        p += 2 + 32; // client_version, random
+        p += 1 + (data[p] & 0xFF); // session_id
+        if (p + 2 > end) {
+            return null;
+        }
+        
+        ja3Length = 0;
+        appendNumber(version);
+        appendByte(',');
+        
+        int cipherEnd = p + 2 + PacketDecoder.readShort(data, p);
+        if (cipherEnd > end) {
+            return null;
+        }
+        boolean first = true;
+        for (p += 2; p + 1 < cipherEnd; p += 2) {
+            int cipher = PacketDecoder.readShort(data, p);
+            if (!isGrease(cipher)) {
+                first = appendListValue(cipher, first);
+            }
+        }
+        p = cipherEnd;
+        appendByte(',');
+        
+        if (p + 1 > end) {
+            return null;
+        }
+        p += 1 + (data[p] & 0xFF); // compression_methods
+        
+        String serverName = null;
+        String alpn = null;
+        int groupCount = 0;
+        int pointFormatCount = 0;
+        
+        if (p + 2 <= end) {
+            int extEnd = p + 2 + PacketDecoder.readShort(data, p);
+            if (extEnd > end) {
+                complete = false;
+                extEnd = end;
+            }
+            first = true;
+            for (p += 2; p + 4 <= extEnd; ) {
+                int type = PacketDecoder.readShort(data, p);
+                int extLength = PacketDecoder.readShort(data, p + 2);
+                int body = p + 4;
+                p = body + extLength;
+                if (p > extEnd) {
+                    complete = false;
+                    break;
+                }
+                if (isGrease(type)) {
+                    continue;
+                }
+                first = appendListValue(type, first);
+                
+                switch (type) {
+                    case EXT_SERVER_NAME:
+                        // server_name_list: list length, name type (0 = host_name), name length, name
+                        if (extLength >= 5 && data[body + 2] == 0) {
+                            int nameLength = PacketDecoder.readShort(data, body + 3);
+                            if (body + 5 + nameLength <= p) {
+                                serverName = ascii(data, body + 5, nameLength);
+                            }
+                        }
+                        break;
+                    case EXT_ALPN:
+                        // protocol_name_list: list length, then length-prefixed names; keep the first
+                        if (extLength >= 3) {
+                            int nameLength = data[body + 2] & 0xFF;
+                            if (body + 3 + nameLength <= p) {
+                                alpn = ascii(data, body + 3, nameLength);
+                            }
+                        }
+                        break;
+                    case EXT_SUPPORTED_GROUPS:
+                        for (int g = body + 2; g + 1 < p && groupCount < groups.length; g += 2) {
+                            int group = PacketDecoder.readShort(data, g);
+                            if (!isGrease(group)) {
+                                groups[groupCount++] = group;
+                            }
+                        }
+                        break;
+                    case EXT_EC_POINT_FORMATS:
+                        for (int f = body + 1; f < p && pointFormatCount < pointFormats.length; f++) {
+                            pointFormats[pointFormatCount++] = data[f] & 0xFF;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        
+        // A JA3 over a partial extension list would not match anyone's blocklist
+        String fingerprint = null;
+        if (complete) {
+            appendByte(',');
+            appendList(groups, groupCount);
+            appendByte(',');
+            appendList(pointFormats, pointFormatCount);
+            fingerprint = md5Hex();
+        }
+        
+        return new TlsInfo(version, serverName != null ? serverName.toLowerCase() : null, alpn, fingerprint);
+    }
+    
+    // GREASE values (RFC 8701) are random per connection and left out of JA3
+    private static boolean isGrease(int value) {
+        return (value & 0x0F0F) == 0x0A0A && (value >> 8) == (value & 0xFF);
+    }
+    
+    private boolean appendListValue(int value, boolean first) {
+        if (!first) {
+            appendByte('-');
+        }
+        appendNumber(value);
+        return false;
+    }
+    
+    private void appendList(int[] values, int count) {
+        for (int i = 0; i < count; i++) {
+            appendListValue(values[i], i == 0);
+        }
+    }
+    
+    private void appendNumber(int value) {
+        if (value >= 10) {
+            appendNumber(value / 10);
+        }
+        appendByte('0' + value % 10);
+    }
+    
+    private void appendByte(int b) {
+        if (ja3Length == ja3.length) {
+            byte[] grown = new byte[ja3.length * 2];
+            System.arraycopy(ja3, 0, grown, 0, ja3Length);
+            ja3 = grown;
+        }
+        ja3[ja3Length++] = (byte) b;
+    }
+    
+    private String md5Hex() {
+        md5.update(ja3, 0, ja3Length);
+        byte[] digest = md5.digest();
+        char[] hex = new char[32];
+        for (int i = 0; i < 16; i++) {
+            hex[i * 2] = HEX[(digest[i] >> 4) & 0x0F];
+            hex[i * 2 + 1] = HEX[digest[i] & 0x0F];
+        }
+        return new String(hex);
+    }
+    
+    private static String ascii(byte[] data, int offset, int length) {
+        return new String(data, offset, length, StandardCharsets.US_ASCII);
+    }
+}
@@ -1,13 +1,29 @@
 package com.security.services.database;
 
+import com.security.config.APIConfig;
 import com.security.models.ConnectionData;
 import com.security.models.DeviceInfo;
+import com.security.models.ThreatEvent;
+import com.security.services.metrics.DbWriteEvent;
+import com.security.services.metrics.LatencyHistogram;
+import com.security.services.metrics.MetricsRegistry;
 import java.sql.*;
 import java.util.*;
 
+// One SQLite connection shared by the analysis pipeline threads and the GUI; every public
+// method is synchronized on this service so statements never interleave on it.
 public class DatabaseService {
+    private static final String INSERT_CONNECTION =
+        "INSERT INTO connections (protocol, local_ip, local_port, remote_ip, remote_port, state, threat_score, status, agent, " +
+        "remote_host) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
     private Connection dbConnection;  // Changed variable name to avoid conflict
     
+    // Time spent writing, lock held; a batch of connections counts as one write
+    private final LatencyHistogram connectionWrites = MetricsRegistry.getInstance().histogram("db.write.connections");
+    private final LatencyHistogram threatWrites = MetricsRegistry.getInstance().histogram("db.write.threat");
+    private final LatencyHistogram firewallWrites = MetricsRegistry.getInstance().histogram("db.write.firewall");
+    
     public DatabaseService() {
         initializeDatabase();
     }
@@ -15,7 +31,12 @@ public class DatabaseService {
     private void initializeDatabase() {
         try {
             Class.forName("org.sqlite.JDBC");
-            dbConnection = DriverManager.getConnection("jdbc:sqlite:security_monitor.db");
+            dbConnection = DriverManager.getConnection("jdbc:sqlite:" + APIConfig.getInstance().getDatabasePath());
+            try (Statement stmt = dbConnection.createStatement()) {
+                // WAL: readers no longer wait for the writer, and commits need fewer fsyncs
+                stmt.execute("PRAGMA journal_mode=WAL");
+                stmt.execute("PRAGMA synchronous=NORMAL");
+            }
             createTables();
             System.out.println("Database initialized successfully");
         } catch (Exception e) {
@@ -95,54 +116,222 @@ public class DatabaseService {
             for (String sql : createTableStatements) {
                 stmt.execute(sql);
             }
+            // Alert aggregation: one row per incident, with its repeat count and time span
+            addMissingColumns("threats", "occurrences INTEGER DEFAULT 1", "first_seen DATETIME", "last_seen DATETIME");
+            // Collector: the agent that reported the row; NULL for the local monitor's own rows
+            addMissingColumns("connections", "agent TEXT");
+            addMissingColumns("threats", "agent TEXT");
+            // Domain or reverse-DNS name of the remote IP, when one is known
+            addMissingColumns("connections", "remote_host TEXT");
+            // Incident updates from agents find their row by these
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_threats_agent_source ON threats (agent, source_ip, threat_type)");
         } catch (SQLException e) {
             System.err.println("Failed to create tables: " + e.getMessage());
         }
     }
     
-    public void logConnection(ConnectionData connection) {
-        String sql = "INSERT INTO connections (protocol, local_ip, local_port, remote_ip, remote_port, state, threat_score, status) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-        
-        try (PreparedStatement pstmt = dbConnection.prepareStatement(sql)) {
-            pstmt.setString(1, connection.getProtocol());
-            pstmt.setString(2, connection.getLocalIP());
-            pstmt.setInt(3, connection.getLocalPort());
-            pstmt.setString(4, connection.getRemoteIP());
-            pstmt.setInt(5, connection.getRemotePort());
-            pstmt.setString(6, connection.getState());
-            pstmt.setDouble(7, connection.getThreatScore());
-            pstmt.setString(8, connection.getStatus());
-            
+    // CREATE TABLE IF NOT EXISTS leaves databases from older versions without newer columns
+    private void addMissingColumns(String table, String... columns) throws SQLException {
+        Set<String> existing = new HashSet<>();
+        try (Statement stmt = dbConnection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+                while (rs.next()) {
+                    existing.add(rs.getString("name"));
+                }
+            }
+            for (String column : columns) {
+                if (!existing.contains(column.substring(0, column.indexOf(' ')))) {
+                    stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column);
+                }
+            }
+        }
+    }
+    
+    public synchronized void logConnection(ConnectionData connection) {
+        DbWriteEvent event = new DbWriteEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean success = false;
+        try (PreparedStatement pstmt = dbConnection.prepareStatement(INSERT_CONNECTION)) {
+            bindConnection(pstmt, connection, null);
             pstmt.executeUpdate();
+            success = true;
         } catch (SQLException e) {
             System.err.println("Failed to log connection: " + e.getMessage());
+        } finally {
+            finishWrite(connectionWrites, start, event, "connections", 1, success);
         }
     }
     
-    public void logThreat(String threatType, String sourceIp, String targetIp, 
+    // Many rows in one transaction: one commit instead of one per connection
+    public synchronized void logConnections(List<ConnectionData> connections) {
+        logConnections(connections, null);
+    }
+    
+    public synchronized void logConnections(List<ConnectionData> connections, String agent) {
+        if (connections.isEmpty()) {
+            return;
+        }
+        
+        DbWriteEvent event = new DbWriteEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            dbConnection.setAutoCommit(false);
+            try (PreparedStatement pstmt = dbConnection.prepareStatement(INSERT_CONNECTION)) {
+                for (ConnectionData connection : connections) {
+                    bindConnection(pstmt, connection, agent);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                dbConnection.commit();
+                success = true;
+            } catch (SQLException e) {
+                dbConnection.rollback();
+                throw e;
+            } finally {
+                dbConnection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to log " + connections.size() + " connections: " + e.getMessage());
+        } finally {
+            finishWrite(connectionWrites, start, event, "connections", connections.size(), success);
+        }
+    }
+    
+    private void finishWrite(LatencyHistogram histogram, long start, DbWriteEvent event,
+                             String table, int rows, boolean success) {
+        histogram.recordSince(start);
+        if (event.shouldCommit()) {
+            event.table = table;
+            event.rows = rows;
+            event.success = success;
+            event.commit();
+        }
+    }
+    
+    private void bindConnection(PreparedStatement pstmt, ConnectionData connection, String agent) throws SQLException {
+        pstmt.setString(1, connection.getProtocol());
+        pstmt.setString(2, connection.getLocalIP());
+        pstmt.setInt(3, connection.getLocalPort());
+        pstmt.setString(4, connection.getRemoteIP());
+        pstmt.setInt(5, connection.getRemotePort());
+        pstmt.setString(6, connection.getState());
+        pstmt.setDouble(7, connection.getThreatScore());
+        pstmt.setString(8, connection.getStatus());
+        pstmt.setString(9, agent);
+        pstmt.setString(10, connection.getRemoteName());
+    }
+    
+    // Returns the new row's id, or -1 if it could not be written
+    public synchronized long logThreat(String threatType, String sourceIp, String targetIp, 
                          String description, int severity, String action) {
-        String sql = "INSERT INTO threats (threat_type, source_ip, target_ip, description, severity, action_taken) " +
-                     "VALUES (?, ?, ?, ?, ?, ?)";
+        return logThreat(new ThreatEvent(System.currentTimeMillis(), threatType, sourceIp, targetIp,
+                                         description, severity, action), null);
+    }
+    
+    // first_seen and last_seen are the alert's own times, not when the row happens to be written
+    public synchronized long logThreat(ThreatEvent threat, String agent) {
+        String sql = "INSERT INTO threats (threat_type, source_ip, target_ip, description, severity, action_taken, " +
+                     "occurrences, first_seen, last_seen, agent) VALUES (?, ?, ?, ?, ?, ?, ?, " +
+                     "datetime(? / 1000, 'unixepoch'), datetime(? / 1000, 'unixepoch'), ?)";
         
-        try (PreparedStatement pstmt = dbConnection.prepareStatement(sql)) {
-            pstmt.setString(1, threatType);
-            pstmt.setString(2, sourceIp);
-            pstmt.setString(3, targetIp);
-            pstmt.setString(4, description);
-            pstmt.setInt(5, severity);
-            pstmt.setString(6, action);
+        long id = -1;
+        DbWriteEvent event = new DbWriteEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean success = false;
+        try (PreparedStatement pstmt = dbConnection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, threat.getThreatType());
+            pstmt.setString(2, threat.getSourceIp());
+            pstmt.setString(3, threat.getTargetIp());
+            pstmt.setString(4, threat.getDescription());
+            pstmt.setInt(5, threat.getSeverity());
+            pstmt.setString(6, threat.getAction());
+            pstmt.setInt(7, threat.getOccurrences());
+            pstmt.setLong(8, threat.getTimestamp());
+            pstmt.setLong(9, threat.getLastSeen());
+            pstmt.setString(10, agent);
             
             pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    id = keys.getLong(1);
+                }
+            }
+            success = true;
         } catch (SQLException e) {
             System.err.println("Failed to log threat: " + e.getMessage());
+        } finally {
+            finishWrite(threatWrites, start, event, "threats", 1, success);
         }
+        return id;
     }
     
-    public void logFirewallAction(String ip, String action, String reason, boolean success) {
+    // Folds repeats into an existing incident row
+    public synchronized void updateThreatOccurrences(long id, int occurrences, long lastSeenMillis, int severity) {
+        String sql = "UPDATE threats SET occurrences = ?, last_seen = datetime(? / 1000, 'unixepoch'), " +
+                     "severity = MAX(severity, ?) WHERE id = ?";
+        
+        DbWriteEvent event = new DbWriteEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean success = false;
+        try (PreparedStatement pstmt = dbConnection.prepareStatement(sql)) {
+            pstmt.setInt(1, occurrences);
+            pstmt.setLong(2, lastSeenMillis);
+            pstmt.setInt(3, severity);
+            pstmt.setLong(4, id);
+            
+            pstmt.executeUpdate();
+            success = true;
+        } catch (SQLException e) {
+            System.err.println("Failed to update threat " + id + ": " + e.getMessage());
+        } finally {
+            finishWrite(threatWrites, start, event, "threats", 1, success);
+        }
+    }
+    
+    // Collector side of the same: the agent's incident is its row with the same source, type and
+    // first_seen. false if there is no such row (its first alert never arrived)
+    public synchronized boolean updateAgentThreat(ThreatEvent threat, String agent) {
+        String sql = "UPDATE threats SET occurrences = MAX(occurrences, ?), " +
+                     "last_seen = MAX(last_seen, datetime(? / 1000, 'unixepoch')), severity = MAX(severity, ?) " +
+                     "WHERE agent = ? AND source_ip = ? AND threat_type = ? AND first_seen = datetime(? / 1000, 'unixepoch')";
+        
+        DbWriteEvent event = new DbWriteEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean success = false;
+        int updated = 0;
+        try (PreparedStatement pstmt = dbConnection.prepareStatement(sql)) {
+            pstmt.setInt(1, threat.getOccurrences());
+            pstmt.setLong(2, threat.getLastSeen());
+            pstmt.setInt(3, threat.getSeverity());
+            pstmt.setString(4, agent);
+            pstmt.setString(5, threat.getSourceIp());
+            pstmt.setString(6, threat.getThreatType());
+            pstmt.setLong(7, threat.getTimestamp());
+            
+            updated = pstmt.executeUpdate();
+            success = true;
+        } catch (SQLException e) {
+            System.err.println("Failed to update threat from " + agent + ": " + e.getMessage());
+        } finally {
+            finishWrite(threatWrites, start, event, "threats", 1, success);
+        }
+        return updated > 0;
+    }
+    
+    public synchronized void logFirewallAction(String ip, String action, String reason, boolean success) {
         String sql = "INSERT INTO firewall_logs (ip_address, action, reason, success) " +
                      "VALUES (?, ?, ?, ?)";
         
+        DbWriteEvent event = new DbWriteEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean written = false;
         try (PreparedStatement pstmt = dbConnection.prepareStatement(sql)) {
             pstmt.setString(1, ip);
             pstmt.setString(2, action);
@@ -150,12 +339,15 @@ public class DatabaseService {
             pstmt.setBoolean(4, success);
             
             pstmt.executeUpdate();
+            written = true;
         } catch (SQLException e) {
             System.err.println("Failed to log firewall action: " + e.getMessage());
+        } finally {
+            finishWrite(firewallWrites, start, event, "firewall_logs", 1, written);
         }
     }
     
-    public List<Map<String, Object>> getRecentThreats(int limit) {
+    public synchronized List<Map<String, Object>> getRecentThreats(int limit) {
         List<Map<String, Object>> threats = new ArrayList<>();
         String sql = "SELECT * FROM threats WHERE resolved = 0 ORDER BY timestamp DESC LIMIT ?";
         
@@ -173,6 +365,9 @@ public class DatabaseService {
                 threat.put("description", rs.getString("description"));
                 threat.put("severity", rs.getInt("severity"));
                 threat.put("action_taken", rs.getString("action_taken"));
+                threat.put("occurrences", rs.getInt("occurrences"));
+                threat.put("first_seen", rs.getString("first_seen"));
+                threat.put("last_seen", rs.getString("last_seen"));
                 threats.add(threat);
             }
         } catch (SQLException e) {
@@ -182,7 +377,55 @@ public class DatabaseService {
         return threats;
     }
     
-    public Map<String, Integer> getThreatStatistics() {
+    // Every remote address a threat was ever logged for
+    public synchronized List<String> getThreatSourceIPs() {
+        List<String> ips = new ArrayList<>();
+        try (Statement stmt = dbConnection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT DISTINCT source_ip FROM threats WHERE source_ip IS NOT NULL")) {
+            while (rs.next()) {
+                ips.add(rs.getString(1));
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to get threat sources: " + e.getMessage());
+        }
+        return ips;
+    }
+    
+    // Collector: rows each agent has reported, {connections, threats}
+    public synchronized Map<String, long[]> getAgentTotals() {
+        Map<String, long[]> totals = new TreeMap<>();
+        String[] tables = {"connections", "threats"};
+        try (Statement stmt = dbConnection.createStatement()) {
+            for (int i = 0; i < tables.length; i++) {
+                try (ResultSet rs = stmt.executeQuery("SELECT agent, COUNT(*) FROM " + tables[i] +
+                                                      " WHERE agent IS NOT NULL GROUP BY agent")) {
+                    while (rs.next()) {
+                        totals.computeIfAbsent(rs.getString(1), a -> new long[2])[i] = rs.getLong(2);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to get agent totals: " + e.getMessage());
+        }
+        return totals;
+    }
+    
+    // Collector: threat events per source across all agents
+    public synchronized Map<String, Long> getAgentThreatCountsBySource() {
+        Map<String, Long> counts = new HashMap<>();
+        try (Statement stmt = dbConnection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT source_ip, COUNT(*) FROM threats " +
+                                              "WHERE agent IS NOT NULL AND source_ip IS NOT NULL GROUP BY source_ip")) {
+            while (rs.next()) {
+                counts.put(rs.getString(1), rs.getLong(2));
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to get threat sources: " + e.getMessage());
+        }
+        return counts;
+    }
+    
+    public synchronized Map<String, Integer> getThreatStatistics() {
         Map<String, Integer> stats = new HashMap<>();
         String[] queries = {
             "SELECT COUNT(*) as total FROM threats",
@@ -207,7 +450,7 @@ public class DatabaseService {
         return stats;
     }
     
-    public void close() {
+    public synchronized void close() {
         try {
             if (dbConnection != null && !dbConnection.isClosed()) {
                 dbConnection.close();
@@ -0,0 +1,114 @@
+package com.security.services.dns;
+
+import com.security.config.APIConfig;
+import com.security.utils.TTLCache;
+import java.net.InetAddress;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class HostnameResolverService {
+    private static final int BATCH_SIZE = 32;
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final String NO_PTR = ""; // negative cache marker
+    
+    private final TTLCache<String, String> cache;
+    private final Set<String> pending;
+    private final BlockingQueue<String> queue;
+    private final ExecutorService lookupPool;
+    private final Thread batcher;
+    private final long positiveTtlMillis;
+    private final long negativeTtlMillis;
+    private volatile boolean running = true;
+    
+    public HostnameResolverService() {
+        APIConfig config = APIConfig.getInstance();
+        this.cache = new TTLCache<>(config.getDnsCacheSize());
+        this.positiveTtlMillis = TimeUnit.SECONDS.toMillis(config.getDnsPositiveTtlSeconds());
+        this.negativeTtlMillis = TimeUnit.SECONDS.toMillis(config.getDnsNegativeTtlSeconds());
+        this.pending = ConcurrentHashMap.newKeySet();
+        this.queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+        this.lookupPool = Executors.newFixedThreadPool(config.getDnsThreads(), r -> {
+            Thread t = new Thread(r, "dns-lookup");
+            t.setDaemon(true);
+            return t;
+        });
+        
+        this.batcher = new Thread(this::processQueue, "dns-batcher");
+        this.batcher.setDaemon(true);
+        this.batcher.start();
+    }
+    
+    // Never blocks: returns the cached name, or the IP itself while the PTR lookup runs
+    public String resolve(String ip) {
+        String cached = getCachedHostname(ip);
+        if (cached != null) {
+            return cached;
+        }
+        
+        if (pending.add(ip) && !queue.offer(ip)) {
+            pending.remove(ip); // Queue full, try again on the next poll
+        }
+        return ip;
+    }
+    
+    // Returns null when the name is not (yet) known
+    public String getCachedHostname(String ip) {
+        String cached = cache.get(ip);
+        if (cached == null) {
+            return null;
+        }
+        return cached.equals(NO_PTR) ? ip : cached;
+    }
+    
+    private void processQueue() {
+        List<String> batch = new ArrayList<>(BATCH_SIZE);
+        
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                
+                List<Callable<Void>> lookups = new ArrayList<>(batch.size());
+                for (String ip : batch) {
+                    lookups.add(() -> {
+                        lookup(ip);
+                        return null;
+                    });
+                }
+                lookupPool.invokeAll(lookups);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("Hostname resolver error: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    private void lookup(String ip) {
+        try {
+            // getByName on a literal does no DNS; getCanonicalHostName does the PTR query
+            String name = InetAddress.getByName(ip).getCanonicalHostName();
+            if (name == null || name.equals(ip)) {
+                cache.put(ip, NO_PTR, negativeTtlMillis);
+            } else {
+                cache.put(ip, name, positiveTtlMillis);
+            }
+        } catch (Exception e) {
+            cache.put(ip, NO_PTR, negativeTtlMillis);
+        } finally {
+            pending.remove(ip);
+        }
+    }
+    
+    public int getCacheSize() { return cache.size(); }
+    public int getPendingCount() { return pending.size(); }
+    
+    public void close() {
+        running = false;
+        batcher.interrupt();
+        lookupPool.shutdownNow();
+    }
+}
@@ -0,0 +1,154 @@
+package com.security.services.dns;
+
+import com.security.config.APIConfig;
+import com.security.utils.TTLCache;
+import java.util.concurrent.atomic.LongAdder;
+
+// Learns IP -> domain mappings from DNS responses seen by packet capture. Each A record
+// answer is remembered under the name that was originally queried (not the CNAME target),
+// for as long as the record's TTL says, so CDN addresses map to the site the user asked for.
+// Called from capture threads; the cache is synchronized.
+public class PassiveDnsObserver {
+    private static final int TYPE_A = 1;
+    private static final int CLASS_IN = 1;
+    private static final int MAX_NAME_LENGTH = 255;
+    private static final int MAX_POINTER_JUMPS = 16;
+    
+    private final TTLCache<String, String> domains;
+    private final long minTtlMillis;
+    private final long maxTtlMillis;
+    
+    private final LongAdder responsesParsed = new LongAdder();
+    private final LongAdder recordsLearned = new LongAdder();
+    private final LongAdder malformed = new LongAdder();
+    
+    public PassiveDnsObserver() {
+        APIConfig config = APIConfig.getInstance();
+        this.domains = new TTLCache<>(config.getPassiveDnsCacheSize());
+        this.minTtlMillis = config.getPassiveDnsMinTtlSeconds() * 1000L;
+        this.maxTtlMillis = config.getPassiveDnsMaxTtlSeconds() * 1000L;
+    }
+    
+    // Queried name that last resolved to this IP, or null
+    public String lookup(String ip) {
+        return domains.get(ip);
+    }
+    
+    // payload is a DNS message (UDP payload from source port 53), length bounded by the capture
+    public void observe(byte[] data, int offset, int length) {
+        int end = offset + length;
+        if (length < 12 || end > data.length) {
+            return;
+        }
+        
+        int flags = readShort(data, offset + 2);
+        int questions = readShort(data, offset + 4);
+        int answers = readShort(data, offset + 6);
+        // Responses only, RCODE 0, exactly one question (what every stub resolver sends)
+        if ((flags & 0x8000) == 0 || (flags & 0x000F) != 0 || questions != 1 || answers == 0) {
+            return;
+        }
+        
+        try {
+            StringBuilder name = new StringBuilder(64);
+            int pos = readName(data, offset, offset + 12, end, name);
+            if (pos < 0 || pos + 4 > end || name.length() == 0) {
+                malformed.increment();
+                return;
+            }
+            String queried = name.toString();
+            pos += 4; // QTYPE, QCLASS
+            
+            for (int i = 0; i < answers && pos < end; i++) {
+                pos = skipName(data, pos, end);
+                if (pos < 0 || pos + 10 > end) {
+                    malformed.increment();
+                    return;
+                }
+                int type = readShort(data, pos);
+                int rrClass = readShort(data, pos + 2);
+                long ttl = readInt(data, pos + 4) & 0xFFFFFFFFL;
+                int rdLength = readShort(data, pos + 8);
+                pos += 10;
+                if (pos + rdLength > end) {
+                    break; // Truncated by snaplen; keep what was already learned
+                }
+                
+                if (type == TYPE_A && rrClass == CLASS_IN && rdLength == 4) {
+                    String ip = (data[pos] & 0xFF) + "." + (data[pos + 1] & 0xFF) + "." +
+                                (data[pos + 2] & 0xFF) + "." + (data[pos + 3] & 0xFF);
+                    long ttlMillis = Math.min(maxTtlMillis, Math.max(minTtlMillis, ttl * 1000));
+                    domains.put(ip, queried, ttlMillis);
+                    recordsLearned.increment();
+                }
+                pos += rdLength;
+            }
+            responsesParsed.increment();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            malformed.increment();
+        }
+    }
+    
+    // Appends the (possibly compressed) name at pos; returns the offset just past it in the
+    // record, or -1 if the name is malformed
+    private static int readName(byte[] data, int message, int pos, int end, StringBuilder out) {
+        int next = -1;
+        int jumps = 0;
+        while (pos < end) {
+            int len = data[pos] & 0xFF;
+            if (len == 0) {
+                return next >= 0 ? next : pos + 1;
+            }
+            if ((len & 0xC0) == 0xC0) {
+                if (pos + 1 >= end || ++jumps > MAX_POINTER_JUMPS) {
+                    return -1;
+                }
+                if (next < 0) {
+                    next = pos + 2;
+                }
+                pos = message + (((len & 0x3F) << 8) | (data[pos + 1] & 0xFF));
+                continue;
+            }
+            if ((len & 0xC0) != 0 || pos + 1 + len > end || out.length() + len + 1 > MAX_NAME_LENGTH) {
+                return -1;
+            }
+            if (out.length() > 0) {
+                out.append('.');
+            }
+            for (int i = 1; i <= len; i++) {
+                out.append(Character.toLowerCase((char) (data[pos + i] & 0xFF)));
+            }
+            pos += 1 + len;
+        }
+        return -1;
+    }
+    
+    // Answer names are not needed, only their length
+    private static int skipName(byte[] data, int pos, int end) {
+        while (pos < end) {
+            int len = data[pos] & 0xFF;
+            if (len == 0) {
+                return pos + 1;
+            }
+            if ((len & 0xC0) == 0xC0) {
+                return pos + 2;
+            }
+            pos += 1 + len;
+        }
+        return -1;
+    }
+    
+    private static int readShort(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+    }
+    
+    private static int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+             | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+    }
+    
+    public int size() { return domains.size(); }
+    public long getResponsesParsed() { return responsesParsed.sum(); }
+    public long getRecordsLearned() { return recordsLearned.sum(); }
+    public long getMalformed() { return malformed.sum(); }
+}
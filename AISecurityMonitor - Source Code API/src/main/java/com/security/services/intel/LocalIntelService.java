@@ -0,0 +1,249 @@
+package com.security.services.intel;
+
+import com.security.config.APIConfig;
+import com.security.services.metrics.MetricsRegistry;
+import com.security.utils.IpRangeClassifier;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Offline threat intel from public IPv4 blocklist files (FireHOL .netset/.ipset, Spamhaus
+// DROP/EDROP, one address or CIDR per line, '#' or ';' comments). Every file in the
+// blocklist directory is one list. Checked before any remote API so listed addresses never
+// cost a VirusTotal/AbuseIPDB quota.
+//
+// The lists are flattened into one sorted array of range boundaries, each with a bitmask of
+// the lists covering it: 8 bytes per boundary, so millions of entries fit in tens of MB and
+// a lookup is one binary search. A background thread polls the files' modification times and
+// swaps in a freshly built index; lookups never see a half-loaded one.
+public class LocalIntelService {
+    private static final int MAX_LISTS = 32;
+    
+    private static LocalIntelService instance;
+    
+    private final File directory;
+    private final int listedScore;
+    private volatile Index index = Index.EMPTY;
+    private Map<String, String> loadedVersions = Collections.emptyMap();
+    private final ScheduledExecutorService reloader;
+    
+    private final LongAdder hits = MetricsRegistry.getInstance().counter("intel.local.hit");
+    private final LongAdder misses = MetricsRegistry.getInstance().counter("intel.local.miss");
+    
+    public static synchronized LocalIntelService getInstance() {
+        if (instance == null) {
+            instance = new LocalIntelService();
+        }
+        return instance;
+    }
+    
+    private LocalIntelService() {
+        APIConfig config = APIConfig.getInstance();
+        this.directory = new File(config.getIntelBlocklistDir());
+        this.listedScore = config.getIntelListedScore();
+        this.reloader = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "intel-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reloader.scheduleWithFixedDelay(this::reloadIfChanged, 0, config.getIntelRefreshSeconds(), TimeUnit.SECONDS);
+    }
+    
+    // Names of the lists containing ip, or null if none does (or ip is not IPv4)
+    public List<String> lookup(String ip) {
+        long address = IpRangeClassifier.parseIPv4(ip);
+        if (address < 0) {
+            return null;
+        }
+        Index current = index;
+        int mask = current.lookup((int) address);
+        if (mask == 0) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        List<String> names = new ArrayList<>(Integer.bitCount(mask));
+        for (int bit = 0; bit < current.lists.length; bit++) {
+            if ((mask & (1 << bit)) != 0) {
+                names.add(current.lists[bit]);
+            }
+        }
+        return names;
+    }
+    
+    // Threat score given to an address found on any list
+    public int getListedScore() { return listedScore; }
+    
+    private synchronized void reloadIfChanged() {
+        try {
+            File[] files = directory.listFiles(File::isFile);
+            if (files == null) {
+                files = new File[0];
+            }
+            Arrays.sort(files);
+            Map<String, String> versions = new LinkedHashMap<>();
+            for (File file : files) {
+                versions.put(file.getName(), file.lastModified() + ":" + file.length());
+            }
+            if (versions.equals(loadedVersions)) {
+                return;
+            }
+            
+            long start = System.currentTimeMillis();
+            Index built = build(files);
+            index = built;
+            loadedVersions = versions;
+            System.out.println("Loaded " + built.lists.length + " blocklists: " + built.entries + " entries, " +
+                             built.boundaries() + " ranges in " + (System.currentTimeMillis() - start) + " ms");
+        } catch (Exception e) {
+            // Keep serving the previous index
+            System.err.println("Failed to load blocklists: " + e.getMessage());
+        }
+    }
+    
+    private static Index build(File[] files) throws IOException {
+        // Each range contributes a start and an end event: position (33 bits, ends are
+        // exclusive and may be 2^32) << 6 | isStart << 5 | list number
+        long[] events = new long[1024];
+        int count = 0;
+        long entries = 0;
+        List<String> names = new ArrayList<>();
+        
+        for (File file : files) {
+            if (names.size() == MAX_LISTS) {
+                System.err.println("Too many blocklists, ignoring " + file.getName());
+                continue;
+            }
+            int list = names.size();
+            names.add(file.getName());
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.ISO_8859_1)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    long[] range = parseRange(line);
+                    if (range == null) {
+                        continue;
+                    }
+                    if (count + 2 > events.length) {
+                        events = Arrays.copyOf(events, events.length * 2);
+                    }
+                    events[count++] = (range[0] << 6) | (1 << 5) | list;
+                    events[count++] = ((range[1] + 1) << 6) | list;
+                    entries++;
+                }
+            }
+        }
+        Arrays.sort(events, 0, count);
+        
+        // Sweep: at each position, apply all its events, then emit the lists still active
+        int[] active = new int[MAX_LISTS];
+        int[] starts = new int[Math.max(1, count)];
+        int[] masks = new int[Math.max(1, count)];
+        int size = 0;
+        int mask = 0;
+        for (int i = 0; i < count; ) {
+            long position = events[i] >>> 6;
+            for (; i < count && (events[i] >>> 6) == position; i++) {
+                int list = (int) (events[i] & 31);
+                boolean isStart = (events[i] & 32) != 0;
+                active[list] += isStart ? 1 : -1;
+                if (active[list] > 0) {
+                    mask |= 1 << list;
+                } else {
+                    mask &= ~(1 << list);
+                }
+            }
+            if (position > 0xFFFFFFFFL) {
+                break;
+            }
+            if (size > 0 && masks[size - 1] == mask) {
+                continue;
+            }
+            starts[size] = (int) position ^ Integer.MIN_VALUE;
+            masks[size] = mask;
+            size++;
+        }
+        
+        return new Index(Arrays.copyOf(starts, size), Arrays.copyOf(masks, size),
+                         names.toArray(new String[0]), entries);
+    }
+    
+    // First token of a line as an inclusive [start, end] range; null for comments, IPv6 and junk
+    private static long[] parseRange(String line) {
+        line = line.trim();
+        int end = 0;
+        while (end < line.length() && " \t;#,".indexOf(line.charAt(end)) < 0) {
+            end++;
+        }
+        if (end == 0) {
+            return null;
+        }
+        String token = line.substring(0, end);
+        int slash = token.indexOf('/');
+        long address = IpRangeClassifier.parseIPv4(slash < 0 ? token : token.substring(0, slash));
+        if (address < 0) {
+            return null;
+        }
+        int bits = 32;
+        if (slash >= 0) {
+            try {
+                bits = Integer.parseInt(token.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (bits < 0 || bits > 32) {
+                return null;
+            }
+        }
+        long hostMask = (1L << (32 - bits)) - 1;
+        return new long[] {address & ~hostMask, address | hostMask};
+    }
+    
+    public Map<String, Object> getStatistics() {
+        Index current = index;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("lists", current.lists.length);
+        stats.put("entries", current.entries);
+        stats.put("ranges", current.boundaries());
+        stats.put("lookups", hits.sum() + misses.sum());
+        stats.put("hits", hits.sum());
+        return stats;
+    }
+    
+    public void close() {
+        reloader.shutdownNow();
+    }
+    
+    // Immutable once built. starts are sign-flipped so signed order matches address order.
+    private static final class Index {
+        static final Index EMPTY = new Index(new int[0], new int[0], new String[0], 0);
+        
+        final int[] starts;
+        final int[] masks;
+        final String[] lists;
+        final long entries;
+        
+        Index(int[] starts, int[] masks, String[] lists, long entries) {
+            this.starts = starts;
+            this.masks = masks;
+            this.lists = lists;
+            this.entries = entries;
+        }
+        
+        int lookup(int address) {
+            int i = Arrays.binarySearch(starts, address ^ Integer.MIN_VALUE);
+            if (i < 0) {
+                i = -i - 2; // Last boundary at or below the address
+            }
+            return i < 0 ? 0 : masks[i];
+        }
+        
+        int boundaries() { return starts.length; }
+    }
+}
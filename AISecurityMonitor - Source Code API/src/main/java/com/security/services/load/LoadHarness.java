@@ -0,0 +1,169 @@
+package com.security.services.load;
+
+import com.security.AISecurityMonitor;
+import com.security.config.APIConfig;
+import com.security.services.metrics.LatencyHistogram;
+import com.security.services.metrics.MetricsRegistry;
+import com.security.services.pipeline.AdmissionController;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Drives the whole monitor (poll -> enrich -> score -> act / persist) from a synthetic source
+// for a fixed time and reports what it sustained: offered, scored and persisted connections
+// per second, admission drops, heap and GC, then per-stage latencies from MetricsRegistry.
+// Rates cover the timed run; what is still queued at the end is drained and reported apart.
+// A synthetic source isolates the monitor (dry firewall, no PTR, remote intel, device scans or
+// agent streaming), so the numbers are the pipeline's own. It refuses to run without db.path,
+// which --load-test defaults to a scratch file before the monitor opens its database.
+public class LoadHarness {
+    private static final long MB = 1024 * 1024;
+    
+    private final AISecurityMonitor monitor;
+    private final SyntheticConnectionSource source;
+    private final int reportIntervalSeconds;
+    private final LongAdder scored = MetricsRegistry.getInstance().counter("connections.scored");
+    
+    private PrintStream console;
+    private long peakHeapUsed = 0;
+    
+    public LoadHarness(AISecurityMonitor monitor, SyntheticConnectionSource source) {
+        this.monitor = monitor;
+        this.source = source;
+        this.reportIntervalSeconds = APIConfig.getInstance().getLoadReportIntervalSeconds();
+    }
+    
+    public void run(long durationSeconds) throws InterruptedException {
+        // The monitor opened its database already; without db.path that is the real one
+        if (!APIConfig.getInstance().isDatabasePathSet()) {
+            throw new IllegalStateException("db.path must name a scratch database before the monitor starts");
+        }
+        // The malicious pool is known bad, as it would be after intel or earlier incidents
+        for (String ip : source.getMaliciousAddresses()) {
+            monitor.getThreatDetector().flagIP(ip, 60);
+        }
+        monitor.setConnectionSource(source);
+        
+        console = System.out;
+        console.println("Load test: " + durationSeconds + " s, " + source.getStatistics() +
+                        ", db " + APIConfig.getInstance().getDatabasePath());
+        // Per-connection console lines would cost more than the analysis being measured
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        
+        Snapshot start = new Snapshot();
+        Snapshot previous = start;
+        long startNanos = start.nanos;
+        try {
+            monitor.startMonitoring();
+            long end = startNanos + TimeUnit.SECONDS.toNanos(durationSeconds);
+            while (System.nanoTime() < end) {
+                TimeUnit.NANOSECONDS.sleep(Math.min(TimeUnit.SECONDS.toNanos(reportIntervalSeconds), end - System.nanoTime()));
+                Snapshot current = new Snapshot();
+                report(previous, current, startNanos);
+                previous = current;
+            }
+            
+            // Stop polling and let the pipeline drain what is still queued
+            monitor.shutdown();
+            summarize(start, previous, new Snapshot());
+        } finally {
+            System.setOut(console);
+        }
+    }
+    
+    private void report(Snapshot from, Snapshot to, long startNanos) {
+        double seconds = (to.nanos - from.nanos) / 1e9;
+        if (seconds <= 0) {
+            return;
+        }
+        peakHeapUsed = Math.max(peakHeapUsed, to.heapUsed);
+        console.println(String.format("%5.0fs offered %.0f/s, scored %.0f/s, persisted %.0f/s, admission dropped %d, " +
+                                      "queued %s, heap %d MB, gc %d (%d ms)",
+            (to.nanos - startNanos) / 1e9,
+            (to.generated - from.generated) / seconds,
+            (to.scored - from.scored) / seconds,
+            (to.persisted - from.persisted) / seconds,
+            to.dropped - from.dropped,
+            queued(),
+            to.heapUsed / MB,
+            to.gcCount - from.gcCount,
+            to.gcMillis - from.gcMillis));
+    }
+    
+    private void summarize(Snapshot first, Snapshot last, Snapshot drained) {
+        double seconds = (last.nanos - first.nanos) / 1e9;
+        AdmissionController admission = monitor.getAdmissionController();
+        long scoredTotal = last.scored - first.scored;
+        long persistedTotal = last.persisted - first.persisted;
+        console.println(String.format("Total: %d offered, %d scored, %d persisted in %.1f s: %.0f offered/s, " +
+                                      "%.0f scored/s, %.0f persisted/s end to end",
+            last.generated - first.generated, scoredTotal, persistedTotal, seconds,
+            (last.generated - first.generated) / seconds, scoredTotal / seconds, persistedTotal / seconds));
+        console.println(String.format("Shutdown: %d more scored, %d more persisted in %.1f s",
+            drained.scored - last.scored, drained.persisted - last.persisted, (drained.nanos - last.nanos) / 1e9));
+        console.println("Admission: " + admission.getStatistics());
+        console.println(String.format("Heap: peak %d MB sampled, %d MB pool peak, max %d MB; gc %d collections, %d ms",
+            peakHeapUsed / MB, poolPeakHeapUsed() / MB, Runtime.getRuntime().maxMemory() / MB,
+            drained.gcCount - first.gcCount, drained.gcMillis - first.gcMillis));
+        console.println("Latency per stage:");
+        for (LatencyHistogram histogram : MetricsRegistry.getInstance().getHistograms().values()) {
+            if (histogram.getCount() > 0) {
+                console.println("  " + histogram);
+            }
+        }
+        for (Map.Entry<String, Long> counter : MetricsRegistry.getInstance().getCounters().entrySet()) {
+            if (counter.getValue() > 0) {
+                console.println("  " + counter.getKey() + " = " + counter.getValue());
+            }
+        }
+    }
+    
+    private String queued() {
+        Map<String, Object> stats = monitor.getPipeline().getStatistics();
+        return stats.get("enrich_queued") + "/" + stats.get("score_queued") + "/" +
+               stats.get("act_queued") + "/" + stats.get("persist_queued");
+    }
+    
+    private static long poolPeakHeapUsed() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+    
+    // Cumulative counts at one instant; rates are differences between two of them
+    private final class Snapshot {
+        final long nanos;
+        final long generated;
+        final long scored;
+        final long persisted;
+        final long dropped;
+        final long heapUsed;
+        long gcCount = 0;
+        long gcMillis = 0;
+        
+        Snapshot() {
+            this.nanos = System.nanoTime();
+            this.generated = source.getGenerated();
+            this.scored = LoadHarness.this.scored.sum();
+            this.persisted = ((Number) monitor.getPipeline().getStatistics().get("persist_processed")).longValue();
+            AdmissionController admission = monitor.getAdmissionController();
+            this.dropped = admission.getDroppedBySampling() + admission.getDroppedByBudget();
+            Runtime runtime = Runtime.getRuntime();
+            this.heapUsed = runtime.totalMemory() - runtime.freeMemory();
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                gcCount += Math.max(0, gc.getCollectionCount());
+                gcMillis += Math.max(0, gc.getCollectionTime());
+            }
+        }
+    }
+}
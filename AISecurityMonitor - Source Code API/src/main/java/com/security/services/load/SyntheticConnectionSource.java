@@ -0,0 +1,121 @@
+package com.security.services.load;
+
+import com.security.config.APIConfig;
+import com.security.models.ConnectionData;
+import com.security.services.ConnectionSource;
+import java.util.*;
+
+// Generates connections at a fixed rate instead of reading the host's sockets. Each poll
+// returns as many connections as the rate allows for the time since the previous poll, so the
+// monitor's adaptive poll interval changes the batch size, not the load.
+//
+// Remote addresses come from the RFC 2544 benchmarking range 198.18.0.0/15: external to the
+// IP classifier (so they take the full enrich -> score path) but never real hosts. Benign
+// traffic goes to load.remote.ips of them on common ports; load.malicious.percent of
+// connections go to a separate pool of load.malicious.ips on attack ports and carry a
+// blocklist match, so they score as MALICIOUS and take the act path too.
+public class SyntheticConnectionSource implements ConnectionSource {
+    private static final int BENCHMARK_NET = (198 << 24) | (18 << 16);
+    private static final int BENCHMARK_SIZE = 1 << 17;
+    private static final int[] BENIGN_PORTS = {443, 443, 443, 80, 53, 993, 8080};
+    private static final int[] MALICIOUS_PORTS = {4444, 31337, 6667, 3389, 445};
+    private static final String[] STATES = {"ESTABLISHED", "ESTABLISHED", "ESTABLISHED", "TIME_WAIT", "SYN_SENT"};
+    
+    private final double ratePerSecond;
+    private final double maliciousFraction;
+    private final int remoteIps;
+    private final int maliciousIps;
+    private final int localIps;
+    private final int maxBatch;
+    private final Random random;
+    
+    private long lastPollNanos = System.nanoTime();
+    private double carry = 0;
+    private long generated = 0;
+    private long generatedMalicious = 0;
+    
+    public SyntheticConnectionSource() {
+        APIConfig config = APIConfig.getInstance();
+        this.ratePerSecond = Math.max(1, config.getLoadRate());
+        this.maliciousFraction = Math.min(100, Math.max(0, config.getLoadMaliciousPercent())) / 100.0;
+        this.maliciousIps = Math.max(1, Math.min(BENCHMARK_SIZE / 2, config.getLoadMaliciousIps()));
+        this.remoteIps = Math.max(1, Math.min(BENCHMARK_SIZE - maliciousIps, config.getLoadRemoteIps()));
+        this.localIps = Math.max(1, Math.min(65534, config.getLoadLocalIps()));
+        // A stalled poller catches up with at most a minute of traffic, not an unbounded burst
+        this.maxBatch = (int) Math.min(Integer.MAX_VALUE - 8, ratePerSecond * 60);
+        this.random = new Random(config.getLoadSeed());
+    }
+    
+    @Override
+    public synchronized List<ConnectionData> scanConnections() {
+        long now = System.nanoTime();
+        double due = carry + ratePerSecond * (now - lastPollNanos) / 1e9;
+        lastPollNanos = now;
+        int count = (int) Math.min(maxBatch, due);
+        carry = count < maxBatch ? due - count : 0;
+        
+        List<ConnectionData> connections = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            connections.add(random.nextDouble() < maliciousFraction ? malicious() : benign());
+        }
+        generated += count;
+        return connections;
+    }
+    
+    private ConnectionData benign() {
+        ConnectionData connection = new ConnectionData("TCP", localIp(), remoteIp(random.nextInt(remoteIps)),
+                                                       ephemeralPort(), BENIGN_PORTS[random.nextInt(BENIGN_PORTS.length)],
+                                                       STATES[random.nextInt(STATES.length)]);
+        connection.setProcessName(random.nextBoolean() ? "chrome.exe" : "svchost.exe");
+        return connection;
+    }
+    
+    private ConnectionData malicious() {
+        generatedMalicious++;
+        ConnectionData connection = new ConnectionData("TCP", localIp(), remoteIp(remoteIps + random.nextInt(maliciousIps)),
+                                                       ephemeralPort(), MALICIOUS_PORTS[random.nextInt(MALICIOUS_PORTS.length)],
+                                                       "ESTABLISHED");
+        connection.setProcessName("rundll32.exe");
+        connection.setIntelMatch("synthetic");
+        return connection;
+    }
+    
+    // Addresses the malicious connections go to, e.g. to flag them as known bad up front
+    public List<String> getMaliciousAddresses() {
+        List<String> addresses = new ArrayList<>(maliciousIps);
+        for (int i = 0; i < maliciousIps; i++) {
+            addresses.add(remoteIp(remoteIps + i));
+        }
+        return addresses;
+    }
+    
+    private String localIp() {
+        int host = 1 + random.nextInt(localIps);
+        return "10.0." + (host >> 8) + "." + (host & 0xFF);
+    }
+    
+    private int ephemeralPort() {
+        return 49152 + random.nextInt(16384);
+    }
+    
+    private static String remoteIp(int index) {
+        int ip = BENCHMARK_NET + index;
+        return (ip >>> 24) + "." + ((ip >> 16) & 0xFF) + "." + ((ip >> 8) & 0xFF) + "." + (ip & 0xFF);
+    }
+    
+    public double getRatePerSecond() { return ratePerSecond; }
+    public synchronized long getGenerated() { return generated; }
+    public synchronized long getGeneratedMalicious() { return generatedMalicious; }
+    
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("rate", ratePerSecond);
+        stats.put("malicious_percent", maliciousFraction * 100);
+        stats.put("remote_ips", remoteIps);
+        stats.put("malicious_ips", maliciousIps);
+        stats.put("local_ips", localIps);
+        stats.put("generated", getGenerated());
+        stats.put("generated_malicious", getGeneratedMalicious());
+        return stats;
+    }
+}
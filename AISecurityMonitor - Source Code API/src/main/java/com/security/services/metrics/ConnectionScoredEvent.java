@@ -0,0 +1,32 @@
+package com.security.services.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.security.ConnectionScored")
+@Label("Connection Scored")
+@Description("Rule-based and ML scoring of one connection")
+@Category({"AI Security Monitor", "Analysis"})
+@StackTrace(false)
+public class ConnectionScoredEvent extends jdk.jfr.Event {
+    @Label("Remote Address")
+    public String remoteIP;
+    
+    @Label("Remote Port")
+    public int remotePort;
+    
+    @Label("Basic Score")
+    public double basicScore;
+    
+    @Label("ML Score")
+    public double mlScore;
+    
+    @Label("Final Score")
+    public double finalScore;
+    
+    @Label("Status")
+    public String status;
+}
@@ -0,0 +1,23 @@
+package com.security.services.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.security.DbWrite")
+@Label("Database Write")
+@Description("One SQLite write, with the database lock held")
+@Category({"AI Security Monitor", "Database"})
+@StackTrace(false)
+public class DbWriteEvent extends jdk.jfr.Event {
+    @Label("Table")
+    public String table;
+    
+    @Label("Rows")
+    public int rows;
+    
+    @Label("Success")
+    public boolean success;
+}
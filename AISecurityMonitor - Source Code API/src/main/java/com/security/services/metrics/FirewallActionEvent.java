@@ -0,0 +1,26 @@
+package com.security.services.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.security.FirewallAction")
+@Label("Firewall Action")
+@Description("Creating or removing a firewall rule")
+@Category({"AI Security Monitor", "Firewall"})
+@StackTrace(false)
+public class FirewallActionEvent extends jdk.jfr.Event {
+    @Label("Address")
+    public String ip;
+    
+    @Label("Action")
+    public String action;
+    
+    @Label("Dry Run")
+    public boolean dryRun;
+    
+    @Label("Success")
+    public boolean success;
+}
@@ -0,0 +1,24 @@
+package com.security.services.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.security.IntelLookup")
+@Label("Intel Lookup")
+@Description("One threat-intelligence provider call")
+@Category({"AI Security Monitor", "Threat Intelligence"})
+@StackTrace(false)
+public class IntelLookupEvent extends jdk.jfr.Event {
+    @Label("Address")
+    public String ip;
+    
+    @Label("Provider")
+    public String provider;
+    
+    @Label("Failed")
+    @Description("The call threw; slow failures are usually HTTP timeouts")
+    public boolean failed;
+}
@@ -0,0 +1,62 @@
+package com.security.services.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+// Process-wide latency histograms and event counters, by dotted name. Instrumented code looks
+// a metric up once (typically into a final field) and records into it directly; readers such
+// as the GUI Metrics tab and the /metrics endpoint get sorted snapshots. Gauges (queue
+// depths, set sizes, ratios) are suppliers that are only evaluated when read.
+//
+// Names in use:
+//   collect.connections, collect.devices          one poll / discovery pass
+//   score.basic, score.features, score.ml          per connection
+//   connections.collected, connections.scored      counters
+//   intel.<provider>                               remote or local lookup, per call
+//   intel.<provider>.hit / .miss                   also local, cache, gate (hit = let through)
+//   db.write.connections, db.write.threat, db.write.firewall
+//   firewall.block, scan.probe (+ .open / .closed)
+//   gauges: pipeline.<stage>.queued, blocked.ips, intel.cache.size, intel.cache.hit.ratio
+public class MetricsRegistry {
+    private static final MetricsRegistry instance = new MetricsRegistry();
+    
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+    
+    public static MetricsRegistry getInstance() {
+        return instance;
+    }
+    
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, LatencyHistogram::new);
+    }
+    
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+    
+    // Replaces any gauge of the same name, so a re-created service reports its own state
+    public void gauge(String name, DoubleSupplier value) {
+        gauges.put(name, value);
+    }
+    
+    public Map<String, LatencyHistogram> getHistograms() {
+        return new TreeMap<>(histograms);
+    }
+    
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        return values;
+    }
+    
+    public Map<String, Double> getGauges() {
+        Map<String, Double> values = new TreeMap<>();
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsDouble()));
+        return values;
+    }
+}
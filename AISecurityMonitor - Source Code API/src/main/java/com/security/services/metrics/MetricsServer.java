@@ -0,0 +1,123 @@
+package com.security.services.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// GET /metrics in the Prometheus text format (0.0.4), on the JDK's built-in HTTP server.
+// Everything is read from MetricsRegistry at scrape time on the server's own thread, so the
+// monitored code pays nothing beyond the recording it already does. Dotted names become
+// aisecurity_<name with underscores>; counters get _total, histograms are exported as
+// summaries in seconds.
+public class MetricsServer {
+    private static final String PREFIX = "aisecurity_";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+    
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final MetricsRegistry registry;
+    
+    public MetricsServer(String bindAddress, int port, MetricsRegistry registry) throws IOException {
+        this.registry = registry;
+        this.server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/metrics", this::handle);
+    }
+    
+    public void start() {
+        server.start();
+        System.out.println("Metrics endpoint at http://" + server.getAddress().getHostString() + ":" +
+                         server.getAddress().getPort() + "/metrics");
+    }
+    
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+    
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    public String render() {
+        StringBuilder out = new StringBuilder(8192);
+        
+        for (Map.Entry<String, Long> counter : registry.getCounters().entrySet()) {
+            String name = metricName(counter.getKey()) + "_total";
+            out.append("# TYPE ").append(name).append(" counter\n");
+            out.append(name).append(' ').append(counter.getValue()).append('\n');
+        }
+        
+        for (Map.Entry<String, Double> gauge : registry.getGauges().entrySet()) {
+            String name = metricName(gauge.getKey());
+            out.append("# TYPE ").append(name).append(" gauge\n");
+            out.append(name).append(' ').append(formatDouble(gauge.getValue())).append('\n');
+        }
+        
+        for (LatencyHistogram histogram : registry.getHistograms().values()) {
+            String name = metricName(histogram.getName()) + "_seconds";
+            out.append("# TYPE ").append(name).append(" summary\n");
+            for (double quantile : QUANTILES) {
+                out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                   .append(formatDouble(histogram.percentile(quantile * 100) / 1e9)).append('\n');
+            }
+            out.append(name).append("_sum ").append(formatDouble(histogram.getSumNanos() / 1e9)).append('\n');
+            out.append(name).append("_count ").append(histogram.getCount()).append('\n');
+        }
+        
+        return out.toString();
+    }
+    
+    private static String metricName(String name) {
+        StringBuilder out = new StringBuilder(PREFIX.length() + name.length());
+        out.append(PREFIX);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+            out.append(valid ? c : '_');
+        }
+        return out.toString();
+    }
+    
+    private static String formatDouble(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        return Double.toString(value);
+    }
+}
@@ -0,0 +1,29 @@
+package com.security.services.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JDK Flight Recorder events for the monitor's slow paths. All are off unless a recording
+// enables them (see ai-security.jfc); a disabled event is never committed and its fields are
+// only filled in once shouldCommit() says it will be, so emitting sites cost a branch.
+@Name("com.security.PortProbe")
+@Label("Port Probe")
+@Description("One TCP connect (and UDP fallback) by the port scanner")
+@Category({"AI Security Monitor", "Scanner"})
+@StackTrace(false)
+public class PortProbeEvent extends jdk.jfr.Event {
+    @Label("Host")
+    public String host;
+    
+    @Label("Port")
+    public int port;
+    
+    @Label("Protocol")
+    public String protocol;
+    
+    @Label("Open")
+    public boolean open;
+}
@@ -1,6 +1,7 @@
 package com.security.services.ml;
 
 import com.security.models.ConnectionData;
+import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
 import weka.classifiers.trees.RandomForest;
 import weka.core.Attribute;
@@ -11,9 +12,10 @@ import java.io.File;
 import java.util.*;
 
 public class MLThreatDetectionService {
-    private Classifier classifier;
+    // Scoring threads read the current model; retraining builds a new one and swaps it in
+    private volatile Classifier classifier;
     private Instances dataset;
-    private boolean modelTrained = false;
+    private volatile boolean modelTrained = false;
     
     public MLThreatDetectionService() {
         initializeAttributes();
@@ -47,7 +49,8 @@ public class MLThreatDetectionService {
     }
     
     public double analyzeWithML(ConnectionData connection, Map<String, Object> additionalFeatures) {
-        if (!modelTrained) {
+        Classifier model = classifier;
+        if (!modelTrained || model == null) {
             return basicAnalysis(connection);
         }
         
@@ -56,7 +59,7 @@ public class MLThreatDetectionService {
             DenseInstance instance = new DenseInstance(1.0, instanceValues);
             instance.setDataset(dataset);
             
-            double[] distribution = classifier.distributionForInstance(instance);
+            double[] distribution = model.distributionForInstance(instance);
             double threatProbability = distribution[1]; // Probability of being threat
             
             return threatProbability * 100;
@@ -150,7 +153,7 @@ public class MLThreatDetectionService {
         }
     }
     
-    public void addTrainingInstance(ConnectionData connection, boolean isThreat, 
+    public synchronized void addTrainingInstance(ConnectionData connection, boolean isThreat, 
                                    Map<String, Object> features) {
         try {
             double[] instanceValues = extractFeatures(connection, features);
@@ -172,8 +175,10 @@ public class MLThreatDetectionService {
     
     private void retrainModel() {
         try {
-            classifier.buildClassifier(dataset);
-            SerializationHelper.write("threat_model.model", classifier);
+            Classifier retrained = AbstractClassifier.makeCopy(classifier);
+            retrained.buildClassifier(dataset);
+            classifier = retrained;
+            SerializationHelper.write("threat_model.model", retrained);
             System.out.println("ML Model retrained with " + dataset.size() + " instances");
         } catch (Exception e) {
             e.printStackTrace();
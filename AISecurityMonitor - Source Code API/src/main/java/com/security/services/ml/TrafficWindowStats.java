@@ -0,0 +1,156 @@
+package com.security.services.ml;
+
+import com.security.config.APIConfig;
+import java.util.HashMap;
+import java.util.Map;
+
+// KDD-style traffic features kept up to date as connections arrive, instead of rescanning
+// history for every one. Two windows, each with per-host, per-service and per-host+service
+// counters that are incremented on entry and decremented on expiry:
+//   time window (last 2 s): count, srv_count, same_srv_rate, diff_srv_rate
+//   count window (last 100 connections): dst_host_count, dst_host_srv_count,
+//                                        dst_host_same_srv_rate, dst_host_diff_srv_rate
+// "Host" is the remote address and "service" the remote port. Each observe() costs O(1)
+// amortized, however much history the rest of the monitor keeps.
+public class TrafficWindowStats {
+    private final long timeWindowMillis;
+    private final Window timeWindow;
+    private final Window countWindow;
+    private long latest = 0;
+    
+    public TrafficWindowStats() {
+        this(APIConfig.getInstance().getFeatureTimeWindowMillis(), APIConfig.getInstance().getFeatureCountWindow());
+    }
+    
+    public TrafficWindowStats(long timeWindowMillis, int countWindow) {
+        this.timeWindowMillis = Math.max(1, timeWindowMillis);
+        this.timeWindow = new Window(64, true);
+        this.countWindow = new Window(Math.max(1, countWindow), false);
+    }
+    
+    // Records the connection and writes its window features (including itself) into features
+    public synchronized void observe(String host, int port, long timeMillis, Map<String, Object> features) {
+        latest = Math.max(latest, timeMillis);
+        timeWindow.expireBefore(latest - timeWindowMillis);
+        String pair = host + ":" + port;
+        timeWindow.add(host, port, pair, timeMillis);
+        countWindow.add(host, port, pair, timeMillis);
+        
+        int count = timeWindow.hosts.get(host);
+        int srvCount = timeWindow.services.get(port);
+        int sameSrv = timeWindow.pairs.get(pair);
+        features.put("count", (double) count);
+        features.put("srv_count", (double) srvCount);
+        features.put("same_srv_rate", (double) sameSrv / count);
+        features.put("diff_srv_rate", (double) (count - sameSrv) / count);
+        
+        int hostCount = countWindow.hosts.get(host);
+        int hostSameSrv = countWindow.pairs.get(pair);
+        features.put("dst_host_count", (double) hostCount);
+        features.put("dst_host_srv_count", (double) countWindow.services.get(port));
+        features.put("dst_host_same_srv_rate", (double) hostSameSrv / hostCount);
+        features.put("dst_host_diff_srv_rate", (double) (hostCount - hostSameSrv) / hostCount);
+    }
+    
+    public synchronized int getTimeWindowSize() { return timeWindow.size; }
+    public synchronized int getCountWindowSize() { return countWindow.size; }
+    
+    // Events in arrival order in a circular array, with counters over what is currently inside.
+    // A growable window evicts by time and doubles when full; a fixed one evicts the oldest.
+    private static final class Window {
+        private final boolean growable;
+        private String[] eventHosts;
+        private int[] ports;
+        private String[] eventPairs;
+        private long[] times;
+        private int head = 0;
+        private int size = 0;
+        
+        final Counter<String> hosts = new Counter<>();
+        final Counter<Integer> services = new Counter<>();
+        final Counter<String> pairs = new Counter<>();
+        
+        Window(int capacity, boolean growable) {
+            this.growable = growable;
+            this.eventHosts = new String[capacity];
+            this.ports = new int[capacity];
+            this.eventPairs = new String[capacity];
+            this.times = new long[capacity];
+        }
+        
+        void add(String host, int port, String pair, long time) {
+            if (size == times.length) {
+                if (growable) {
+                    grow();
+                } else {
+                    removeOldest();
+                }
+            }
+            int slot = (head + size) % times.length;
+            eventHosts[slot] = host;
+            ports[slot] = port;
+            eventPairs[slot] = pair;
+            times[slot] = time;
+            size++;
+            hosts.increment(host);
+            services.increment(port);
+            pairs.increment(pair);
+        }
+        
+        void expireBefore(long cutoff) {
+            while (size > 0 && times[head] <= cutoff) {
+                removeOldest();
+            }
+        }
+        
+        private void removeOldest() {
+            hosts.decrement(eventHosts[head]);
+            services.decrement(ports[head]);
+            pairs.decrement(eventPairs[head]);
+            eventHosts[head] = null;
+            eventPairs[head] = null;
+            head = (head + 1) % times.length;
+            size--;
+        }
+        
+        private void grow() {
+            int capacity = times.length * 2;
+            String[] newHosts = new String[capacity];
+            int[] newPorts = new int[capacity];
+            String[] newPairs = new String[capacity];
+            long[] newTimes = new long[capacity];
+            for (int i = 0; i < size; i++) {
+                int slot = (head + i) % times.length;
+                newHosts[i] = eventHosts[slot];
+                newPorts[i] = ports[slot];
+                newPairs[i] = eventPairs[slot];
+                newTimes[i] = times[slot];
+            }
+            eventHosts = newHosts;
+            ports = newPorts;
+            eventPairs = newPairs;
+            times = newTimes;
+            head = 0;
+        }
+    }
+    
+    private static final class Counter<K> {
+        private final Map<K, int[]> counts = new HashMap<>();
+        
+        int get(K key) {
+            int[] count = counts.get(key);
+            return count == null ? 0 : count[0];
+        }
+        
+        void increment(K key) {
+            counts.computeIfAbsent(key, k -> new int[1])[0]++;
+        }
+        
+        void decrement(K key) {
+            int[] count = counts.get(key);
+            if (count != null && --count[0] <= 0) {
+                counts.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.security.services.pipeline;
+
+import com.security.config.APIConfig;
+import com.security.models.ConnectionData;
+import com.security.services.ThreatDetectionService;
+import com.security.utils.IpRangeClassifier;
+import com.security.utils.TTLCache;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Decides which connections get scored when there are more than one monitoring run can handle.
+// High-value connections (remote IP already flagged, blocked or recently suspicious) always go
+// first; ordinary external flows are hash-sampled once runs overrun their time budget, and
+// whatever is left when the budget runs out is dropped and counted instead of delaying the
+// next run.
+public class AdmissionController {
+    public enum Priority { HIGH, NORMAL, LOW }
+    
+    private static final int FLAGGED_CACHE_SIZE = 10000;
+    
+    private final ThreatDetectionService threatDetector;
+    private final IpRangeClassifier ipClassifier = IpRangeClassifier.getInstance();
+    private final Set<String> blockedIPs;
+    private final boolean enabled;
+    private final long budgetNanos;
+    private final double minSampleRate;
+    private final long flaggedTtlMillis;
+    
+    // Remote IPs that scored SUSPICIOUS/MALICIOUS recently
+    private final TTLCache<String, Boolean> flaggedIPs = new TTLCache<>(FLAGGED_CACHE_SIZE);
+    
+    // Fraction of NORMAL flows admitted; adapted after every run
+    private volatile double sampleRate = 1.0;
+    
+    private final LongAdder offered = new LongAdder();
+    private final LongAdder admittedHigh = new LongAdder();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder droppedSampling = new LongAdder();
+    private final LongAdder droppedBudget = new LongAdder();
+    private volatile long lastRunNanos;
+    
+    public AdmissionController(ThreatDetectionService threatDetector, Set<String> blockedIPs) {
+        APIConfig config = APIConfig.getInstance();
+        this.threatDetector = threatDetector;
+        this.blockedIPs = blockedIPs;
+        this.enabled = config.isAdmissionEnabled();
+        this.budgetNanos = config.getAdmissionBudgetMillis() * 1_000_000L;
+        this.minSampleRate = Math.min(1.0, Math.max(0.001, config.getAdmissionMinSamplePercent() / 100.0));
+        this.flaggedTtlMillis = config.getAdmissionFlaggedTtlSeconds() * 1000L;
+    }
+    
+    // Starts a run: returns the connections to score, highest priority first. Dropped
+    // connections are counted and left unscored.
+    public Run begin(List<ConnectionData> connections) {
+        offered.add(connections.size());
+        if (!enabled) {
+            return new Run(connections, 0, 0, Long.MAX_VALUE);
+        }
+        
+        List<ConnectionData> high = new ArrayList<>();
+        List<ConnectionData> normal = new ArrayList<>();
+        List<ConnectionData> low = new ArrayList<>();
+        double rate = sampleRate;
+        int sampledOut = 0;
+        
+        for (ConnectionData conn : connections) {
+            switch (classify(conn)) {
+                case HIGH:
+                    high.add(conn);
+                    break;
+                case NORMAL:
+                    if (rate >= 1.0 || sampled(conn, rate)) {
+                        normal.add(conn);
+                    } else {
+                        sampledOut++;
+                    }
+                    break;
+                default:
+                    low.add(conn);
+            }
+        }
+        
+        List<ConnectionData> ordered = new ArrayList<>(high.size() + normal.size() + low.size());
+        ordered.addAll(high);
+        ordered.addAll(normal);
+        ordered.addAll(low);
+        admittedHigh.add(high.size());
+        droppedSampling.add(sampledOut);
+        return new Run(ordered, high.size(), sampledOut, System.nanoTime() + budgetNanos);
+    }
+    
+    public Priority classify(ConnectionData conn) {
+        String ip = conn.getRemoteIP();
+        int ipClass = ipClassifier.classify(ip);
+        if ((ipClass & IpRangeClassifier.DENYLIST) != 0 || blockedIPs.contains(ip) ||
+            threatDetector.isFlagged(ip) || flaggedIPs.get(ip) != null) {
+            return Priority.HIGH;
+        }
+        return (ipClass & (IpRangeClassifier.LOCAL | IpRangeClassifier.ALLOWLIST)) != 0 ? Priority.LOW : Priority.NORMAL;
+    }
+    
+    // Called with the outcome of scoring, so repeat offenders jump the queue next run
+    public void recordResult(ConnectionData conn) {
+        String status = conn.getStatus();
+        if ("SUSPICIOUS".equals(status) || "MALICIOUS".equals(status)) {
+            flaggedIPs.put(conn.getRemoteIP(), Boolean.TRUE, flaggedTtlMillis);
+        }
+    }
+    
+    // Same flow, same decision: a flow is either followed across runs or skipped
+    private static boolean sampled(ConnectionData conn, double rate) {
+        int h = conn.getRemoteIP().hashCode() * 31 + conn.getRemotePort();
+        h = h * 31 + conn.getLocalPort();
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return (h & 0xFFFF) < rate * 0x10000;
+    }
+    
+    // Halve the sample rate after an overrun, recover gradually once runs are fast again
+    private void adapt(long elapsedNanos, boolean overran) {
+        lastRunNanos = elapsedNanos;
+        if (overran || elapsedNanos > budgetNanos) {
+            sampleRate = Math.max(minSampleRate, sampleRate / 2);
+        } else if (elapsedNanos < budgetNanos / 4 && sampleRate < 1.0) {
+            sampleRate = Math.min(1.0, sampleRate * 2);
+        }
+    }
+    
+    public class Run {
+        private final List<ConnectionData> connections;
+        private final int highCount;
+        private final long deadline;
+        private final long started = System.nanoTime();
+        private final AtomicInteger dropped;
+        private volatile boolean overran = false;
+        
+        private Run(List<ConnectionData> connections, int highCount, int sampledOut, long deadline) {
+            this.connections = connections;
+            this.highCount = highCount;
+            this.dropped = new AtomicInteger(sampledOut);
+            this.deadline = deadline;
+        }
+        
+        public List<ConnectionData> getConnections() { return connections; }
+        
+        // Call before scoring the connection at this index of getConnections(); safe from any
+        // thread. HIGH connections are always scored; the rest are dropped once over budget.
+        public boolean admit(int index) {
+            if (index < highCount || System.nanoTime() < deadline) {
+                admitted.increment();
+                return true;
+            }
+            overran = true;
+            dropped.incrementAndGet();
+            droppedBudget.increment();
+            return false;
+        }
+        
+        // Connections offered to this run that were not scored
+        public int getDropped() { return dropped.get(); }
+        
+        public void end() {
+            if (enabled) {
+                adapt(System.nanoTime() - started, overran);
+            }
+        }
+    }
+    
+    public double getSampleRate() { return sampleRate; }
+    public long getOffered() { return offered.sum(); }
+    public long getAdmitted() { return admitted.sum(); }
+    public long getAdmittedHighPriority() { return admittedHigh.sum(); }
+    public long getDroppedBySampling() { return droppedSampling.sum(); }
+    public long getDroppedByBudget() { return droppedBudget.sum(); }
+    public long getLastRunMillis() { return lastRunNanos / 1_000_000; }
+    
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("offered", getOffered());
+        stats.put("admitted", getAdmitted());
+        stats.put("admitted_high_priority", getAdmittedHighPriority());
+        stats.put("dropped_sampling", getDroppedBySampling());
+        stats.put("dropped_budget", getDroppedByBudget());
+        stats.put("sample_rate", sampleRate);
+        stats.put("last_run_ms", getLastRunMillis());
+        return stats;
+    }
+}
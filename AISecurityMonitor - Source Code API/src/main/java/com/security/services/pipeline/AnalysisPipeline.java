@@ -0,0 +1,152 @@
+package com.security.services.pipeline;
+
+import com.security.config.APIConfig;
+import com.security.models.ConnectionData;
+import com.security.services.metrics.MetricsRegistry;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// collect -> enrich -> score -> act / persist, each stage with its own bounded queue and
+// threads. The caller waits only until its connections are scored; firewall actions and
+// database writes run behind, so slow I/O no longer holds up scoring unless their queues
+// fill up completely.
+public class AnalysisPipeline {
+    private final Predicate<ConnectionData> enricher;
+    private final Consumer<ConnectionData> scorer;
+    
+    private final PipelineStage<Task> enrichStage;
+    private final PipelineStage<Task> scoreStage;
+    private final PipelineStage<ConnectionData> actStage;
+    private final PipelineStage<ConnectionData> persistStage;
+    
+    // enricher returns false for connections it has already finished with (e.g. internal
+    // addresses); actor runs for MALICIOUS connections; persister gets batches of scored ones
+    public AnalysisPipeline(Predicate<ConnectionData> enricher, Consumer<ConnectionData> scorer,
+                            Consumer<ConnectionData> actor, Consumer<List<ConnectionData>> persister) {
+        APIConfig config = APIConfig.getInstance();
+        int capacity = config.getPipelineQueueCapacity();
+        
+        this.enricher = enricher;
+        this.scorer = scorer;
+        
+        this.persistStage = new PipelineStage<>("persist", capacity, config.getPipelinePersistThreads(),
+                                                config.getPipelinePersistBatch(), persister::accept);
+        this.actStage = new PipelineStage<>("act", capacity, config.getPipelineActThreads(), 1,
+                                            items -> items.forEach(actor));
+        this.scoreStage = new PipelineStage<>("score", capacity, config.getPipelineScoreThreads(), 1,
+                                              this::score);
+        this.enrichStage = new PipelineStage<>("enrich", capacity, config.getPipelineEnrichThreads(), 1,
+                                               this::enrich);
+        
+        for (PipelineStage<?> stage : Arrays.asList(enrichStage, scoreStage, actStage, persistStage)) {
+            MetricsRegistry.getInstance().gauge("pipeline." + stage.getName() + ".queued", stage::getQueued);
+        }
+    }
+    
+    // Queues every connection of the run (blocking while the enrich queue is full) and returns
+    // a handle to wait on. Connections are offered in the run's priority order.
+    public Batch submit(AdmissionController.Run run) throws InterruptedException {
+        List<ConnectionData> connections = run.getConnections();
+        Batch batch = new Batch(connections.size());
+        for (int i = 0; i < connections.size(); i++) {
+            enrichStage.put(new Task(connections.get(i), run, i, batch));
+        }
+        return batch;
+    }
+    
+    private void enrich(List<Task> tasks) throws InterruptedException {
+        for (Task task : tasks) {
+            boolean needsScoring = false;
+            try {
+                // The time budget is checked when a connection reaches the front of the pipeline
+                needsScoring = task.run.admit(task.index) && enricher.test(task.connection);
+            } catch (Exception e) {
+                System.err.println("Error enriching connection: " + e.getMessage());
+            }
+            if (needsScoring) {
+                scoreStage.put(task);
+            } else {
+                task.batch.complete();
+            }
+        }
+    }
+    
+    private void score(List<Task> tasks) throws InterruptedException {
+        for (Task task : tasks) {
+            ConnectionData connection = task.connection;
+            try {
+                scorer.accept(connection);
+            } catch (Exception e) {
+                System.err.println("Error analyzing connection: " + e.getMessage());
+                task.batch.complete();
+                continue;
+            }
+            // The caller's wait ends at scoring; acting and persisting continue in the background
+            task.batch.complete();
+            if ("MALICIOUS".equals(connection.getStatus())) {
+                actStage.put(connection);
+            }
+            persistStage.put(connection);
+        }
+    }
+    
+    // Drains each stage in order so nothing queued is lost
+    public void shutdown() {
+        enrichStage.stop(5000);
+        scoreStage.stop(5000);
+        actStage.stop(10000);
+        persistStage.stop(10000);
+    }
+    
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (PipelineStage<?> stage : Arrays.asList(enrichStage, scoreStage, actStage, persistStage)) {
+            stats.put(stage.getName() + "_threads", stage.getThreads());
+            stats.put(stage.getName() + "_queued", stage.getQueued());
+            stats.put(stage.getName() + "_processed", stage.getProcessed());
+            stats.put(stage.getName() + "_failures", stage.getFailures());
+        }
+        return stats;
+    }
+    
+    private static final class Task {
+        final ConnectionData connection;
+        final AdmissionController.Run run;
+        final int index;
+        final Batch batch;
+        
+        Task(ConnectionData connection, AdmissionController.Run run, int index, Batch batch) {
+            this.connection = connection;
+            this.run = run;
+            this.index = index;
+            this.batch = batch;
+        }
+    }
+    
+    // Completion of one submitted run
+    public static final class Batch {
+        private final AtomicInteger remaining;
+        private final CountDownLatch done = new CountDownLatch(1);
+        
+        Batch(int size) {
+            this.remaining = new AtomicInteger(size);
+            if (size == 0) {
+                done.countDown();
+            }
+        }
+        
+        void complete() {
+            if (remaining.decrementAndGet() == 0) {
+                done.countDown();
+            }
+        }
+        
+        // Returns once every connection has been scored or dropped
+        public void await() throws InterruptedException {
+            done.await();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.security.services.pipeline;
+
+import com.security.services.metrics.LatencyHistogram;
+import com.security.services.metrics.MetricsRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// A bounded queue drained by a fixed set of worker threads. put() blocks while the queue is
+// full, so a slow stage pushes back on the one feeding it instead of growing without limit.
+final class PipelineStage<T> {
+    interface Handler<T> {
+        // Items arrive in batches of up to batchSize; a batch of one for per-item stages
+        void handle(List<T> items) throws Exception;
+    }
+    
+    private final String name;
+    private final BlockingQueue<T> queue;
+    private final int batchSize;
+    private final Handler<T> handler;
+    private final Thread[] workers;
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LatencyHistogram latency;
+    private volatile boolean running = true;
+    
+    PipelineStage(String name, int capacity, int threads, int batchSize, Handler<T> handler) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.handler = handler;
+        // Handler time per batch; queue waits show up in the stage's .queued gauge instead
+        this.latency = MetricsRegistry.getInstance().histogram("pipeline." + name);
+        this.workers = new Thread[Math.max(1, threads)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(this::work, "pipeline-" + name + "-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+    
+    void put(T item) throws InterruptedException {
+        queue.put(item);
+    }
+    
+    private void work() {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                T first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                long start = System.nanoTime();
+                handler.handle(batch);
+                latency.recordSince(start);
+                processed.add(batch.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                failures.add(batch.size());
+                System.err.println("Pipeline stage " + name + " failed: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    // Lets the workers finish what is queued, then waits for them
+    void stop(long timeoutMillis) {
+        running = false;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (Thread worker : workers) {
+            try {
+                worker.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+    
+    String getName() { return name; }
+    int getThreads() { return workers.length; }
+    int getQueued() { return queue.size(); }
+    long getProcessed() { return processed.sum(); }
+    long getFailures() { return failures.sum(); }
+}
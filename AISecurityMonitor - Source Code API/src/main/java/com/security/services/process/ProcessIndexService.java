@@ -0,0 +1,227 @@
+package com.security.services.process;
+
+import com.security.config.APIConfig;
+import com.security.models.ConnectionData;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+
+// Maps socket inodes (Linux) or netstat PIDs (Windows) to the owning process.
+// /proc/<pid>/fd is only walked for PIDs we have not seen before; known PIDs are
+// rescanned only when a connection's inode is missing, and at most once per interval.
+// The kernel reuses inodes of closed sockets, so every hit is checked against the fd it was
+// found on (one readlink) before it is trusted, and a rescan replaces a PID's whole socket set.
+// A socket shared by several processes (inherited by a child) stays attributed while any of
+// them still holds it.
+public class ProcessIndexService {
+    private static final boolean IS_LINUX = System.getProperty("os.name").toLowerCase().contains("linux");
+    private static final File PROC = new File("/proc");
+    
+    private final Map<Long, Set<Integer>> inodeOwners = new HashMap<>();
+    private final Map<Integer, ProcessEntry> processes = new HashMap<>();
+    private final long rescanIntervalMillis;
+    private long lastFullRescan = 0;
+    
+    public ProcessIndexService() {
+        this.rescanIntervalMillis = APIConfig.getInstance().getProcessRescanIntervalSeconds() * 1000L;
+    }
+    
+    public synchronized void attachProcesses(List<ConnectionData> connections) {
+        if (IS_LINUX) {
+            attachFromProc(connections);
+        } else {
+            // netstat already gives us PIDs; drop cached entries for PIDs no longer seen
+            Set<Integer> seen = new HashSet<>();
+            for (ConnectionData conn : connections) {
+                seen.add(conn.getPid());
+            }
+            processes.keySet().retainAll(seen);
+        }
+        
+        for (ConnectionData conn : connections) {
+            if (conn.getPid() > 0) {
+                ProcessEntry entry = IS_LINUX ? processes.get(conn.getPid()) : getOrCreateEntry(conn.getPid());
+                if (entry != null) {
+                    conn.setProcessName(entry.name);
+                    conn.setProcessPath(entry.executable);
+                }
+            }
+        }
+    }
+    
+    private void attachFromProc(List<ConnectionData> connections) {
+        Set<Integer> livePids = listPids();
+        
+        // Forget exited processes
+        Iterator<Map.Entry<Integer, ProcessEntry>> it = processes.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, ProcessEntry> e = it.next();
+            if (!livePids.contains(e.getKey())) {
+                for (Long inode : e.getValue().sockets.keySet()) {
+                    removeOwner(inode, e.getKey());
+                }
+                it.remove();
+            }
+        }
+        
+        // Walk fds only for PIDs that are new since the last poll
+        for (Integer pid : livePids) {
+            if (!processes.containsKey(pid)) {
+                ProcessEntry entry = readProcess(pid);
+                processes.put(pid, entry);
+                scanSockets(pid, entry);
+            }
+        }
+        
+        List<ConnectionData> unattributed = new ArrayList<>();
+        for (ConnectionData conn : connections) {
+            if (conn.getInode() > 0 && !attach(conn)) {
+                unattributed.add(conn);
+            }
+        }
+        
+        // Long-lived processes open new sockets too; only look again if something is unattributed
+        long now = System.currentTimeMillis();
+        if (!unattributed.isEmpty() && now - lastFullRescan >= rescanIntervalMillis) {
+            lastFullRescan = now;
+            for (Map.Entry<Integer, ProcessEntry> e : processes.entrySet()) {
+                if (e.getValue().accessible) {
+                    scanSockets(e.getKey(), e.getValue());
+                }
+            }
+            for (ConnectionData conn : unattributed) {
+                attach(conn);
+            }
+        }
+    }
+    
+    // First indexed owner that still holds the inode on the same fd
+    private boolean attach(ConnectionData conn) {
+        Set<Integer> owners = inodeOwners.get(conn.getInode());
+        if (owners == null) {
+            return false;
+        }
+        for (Integer pid : new ArrayList<>(owners)) {
+            ProcessEntry entry = processes.get(pid);
+            if (entry != null && holds(pid, entry, conn.getInode())) {
+                conn.setPid(pid);
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private boolean holds(int pid, ProcessEntry entry, long inode) {
+        String fd = entry.sockets.get(inode);
+        try {
+            if (fd != null &&
+                Files.readSymbolicLink(Paths.get("/proc", String.valueOf(pid), "fd", fd)).toString().equals("socket:[" + inode + "]")) {
+                return true;
+            }
+        } catch (Exception e) {
+            // fd closed since the last scan
+        }
+        // Closed, or the inode now belongs to a different socket
+        entry.sockets.remove(inode);
+        removeOwner(inode, pid);
+        return false;
+    }
+    
+    private void removeOwner(long inode, int pid) {
+        Set<Integer> owners = inodeOwners.get(inode);
+        if (owners != null && owners.remove(pid) && owners.isEmpty()) {
+            inodeOwners.remove(inode);
+        }
+    }
+    
+    private Set<Integer> listPids() {
+        Set<Integer> pids = new HashSet<>();
+        String[] names = PROC.list();
+        if (names != null) {
+            for (String name : names) {
+                if (!name.isEmpty() && Character.isDigit(name.charAt(0))) {
+                    try {
+                        pids.add(Integer.parseInt(name));
+                    } catch (NumberFormatException e) {
+                        // Not a process directory
+                    }
+                }
+            }
+        }
+        return pids;
+    }
+    
+    private ProcessEntry readProcess(int pid) {
+        ProcessEntry entry = new ProcessEntry();
+        
+        try {
+            entry.name = new String(Files.readAllBytes(Paths.get("/proc", String.valueOf(pid), "comm"))).trim();
+        } catch (IOException e) {
+            entry.name = String.valueOf(pid);
+        }
+        
+        try {
+            entry.executable = Files.readSymbolicLink(Paths.get("/proc", String.valueOf(pid), "exe")).toString();
+        } catch (Exception e) {
+            // Kernel threads and other users' processes when not running as root
+        }
+        
+        return entry;
+    }
+    
+    private void scanSockets(int pid, ProcessEntry entry) {
+        File[] fds = new File(PROC, pid + "/fd").listFiles();
+        if (fds == null) {
+            entry.accessible = false;
+            return;
+        }
+        
+        // The current fd table replaces the old one: closed sockets drop out of the index
+        Map<Long, String> sockets = new HashMap<>();
+        for (File fd : fds) {
+            try {
+                String target = Files.readSymbolicLink(fd.toPath()).toString();
+                // socket:[12345]
+                if (target.startsWith("socket:[")) {
+                    sockets.put(Long.parseLong(target.substring(8, target.length() - 1)), fd.getName());
+                }
+            } catch (Exception e) {
+                // fd closed between list and readlink
+            }
+        }
+        
+        for (Long inode : entry.sockets.keySet()) {
+            if (!sockets.containsKey(inode)) {
+                removeOwner(inode, pid);
+            }
+        }
+        for (Long inode : sockets.keySet()) {
+            inodeOwners.computeIfAbsent(inode, i -> new LinkedHashSet<>()).add(pid);
+        }
+        entry.sockets = sockets;
+    }
+    
+    private ProcessEntry getOrCreateEntry(int pid) {
+        ProcessEntry entry = processes.get(pid);
+        if (entry == null) {
+            entry = new ProcessEntry();
+            entry.executable = ProcessHandle.of(pid).flatMap(h -> h.info().command()).orElse(null);
+            entry.name = entry.executable != null
+                ? Paths.get(entry.executable).getFileName().toString()
+                : String.valueOf(pid);
+            processes.put(pid, entry);
+        }
+        return entry;
+    }
+    
+    public synchronized int getIndexedProcessCount() { return processes.size(); }
+    public synchronized int getIndexedSocketCount() { return inodeOwners.size(); }
+    
+    private static class ProcessEntry {
+        private String name;
+        private String executable;
+        private boolean accessible = true;
+        private Map<Long, String> sockets = new HashMap<>(); // inode -> fd number
+    }
+}
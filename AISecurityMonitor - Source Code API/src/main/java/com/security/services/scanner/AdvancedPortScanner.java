@@ -1,8 +1,12 @@
 package com.security.services.scanner;
 
+import com.security.services.metrics.LatencyHistogram;
+import com.security.services.metrics.MetricsRegistry;
+import com.security.services.metrics.PortProbeEvent;
 import java.net.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 
 public class AdvancedPortScanner {
     private int THREAD_POOL_SIZE = 100;
@@ -12,6 +16,10 @@ public class AdvancedPortScanner {
         445, 993, 995, 1723, 3306, 3389, 5900, 8080
     };
     
+    private final LatencyHistogram probeLatency = MetricsRegistry.getInstance().histogram("scan.probe");
+    private final LongAdder probesOpen = MetricsRegistry.getInstance().counter("scan.probe.open");
+    private final LongAdder probesClosed = MetricsRegistry.getInstance().counter("scan.probe.closed");
+    
     public AdvancedPortScanner() {
         // Default constructor with default settings
     }
@@ -151,6 +159,23 @@ public class AdvancedPortScanner {
     }
     
     public PortScanResult scanPort(String ip, int port) {
+        PortProbeEvent event = new PortProbeEvent();
+        event.begin();
+        long start = System.nanoTime();
+        PortScanResult result = probePort(ip, port);
+        probeLatency.recordSince(start);
+        (result != null ? probesOpen : probesClosed).increment();
+        if (event.shouldCommit()) {
+            event.host = ip;
+            event.port = port;
+            event.protocol = result != null ? result.getProtocol() : "TCP";
+            event.open = result != null;
+            event.commit();
+        }
+        return result;
+    }
+    
+    private PortScanResult probePort(String ip, int port) {
         try {
             Socket socket = new Socket();
             socket.connect(new InetSocketAddress(ip, port), TIMEOUT);
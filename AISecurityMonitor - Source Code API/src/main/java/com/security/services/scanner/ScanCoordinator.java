@@ -0,0 +1,243 @@
+package com.security.services.scanner;
+
+import com.security.config.APIConfig;
+import com.security.services.scanner.AdvancedPortScanner.PortScanResult;
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Splits a scan (hosts x port range) into shards and hands them, one at a time, to ScanWorker
+// processes that connect over TCP. Open ports stream back as they are found; a shard counts as
+// done only when its worker says so. A worker that disconnects or stays silent longer than
+// scan.cluster.worker.timeout.ms loses its shard to the front of the queue for the next worker.
+// Listening on anything but loopback requires scan.cluster.token: workers receive the targets.
+//
+// Protocol: UTF-8 lines, tab-separated fields.
+//   worker -> coordinator   HELLO <name> <token>
+//                           OPEN <shard> <host> <port> <protocol> <service> <banner>
+//                           DONE <shard> <probed>
+//                           BEAT
+//   coordinator -> worker   SHARD <shard> <host> <startPort> <endPort>
+//                           BYE
+public class ScanCoordinator {
+    static final String SEPARATOR = "\t";
+    
+    private final String bindAddress;
+    private final int port;
+    private final String token;
+    private final int workerTimeoutMillis;
+    
+    private final List<Shard> shards = new ArrayList<>();
+    private final BlockingDeque<Shard> pending = new LinkedBlockingDeque<>();
+    private final Set<Integer> completed = ConcurrentHashMap.newKeySet();
+    private final Map<String, PortScanResult> results = new ConcurrentHashMap<>();
+    private final CountDownLatch allDone;
+    private volatile boolean finished = false;
+    private final AtomicInteger reassigned = new AtomicInteger();
+    private volatile ServerSocket serverSocket;
+    
+    public ScanCoordinator(String bindAddress, int port, List<String> hosts, int startPort, int endPort) {
+        APIConfig config = APIConfig.getInstance();
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.token = config.getScanClusterToken();
+        this.workerTimeoutMillis = config.getScanWorkerTimeoutMillis();
+        
+        int shardPorts = config.getScanShardPorts();
+        for (String host : hosts) {
+            for (int first = startPort; first <= endPort; first += shardPorts) {
+                Shard shard = new Shard(shards.size(), host, first, Math.min(endPort, first + shardPorts - 1));
+                shards.add(shard);
+                pending.add(shard);
+            }
+        }
+        this.allDone = new CountDownLatch(shards.size());
+    }
+    
+    // Accepts workers until every shard is done or the timeout passes; returns the open ports found
+    public List<PortScanResult> run(long timeoutMillis) throws IOException, InterruptedException {
+        if (token.isEmpty() && !InetAddress.getByName(bindAddress).isLoopbackAddress()) {
+            throw new IOException("scan.cluster.token must be set to listen on " + bindAddress);
+        }
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(bindAddress, port));
+        System.out.println("Scan coordinator on " + bindAddress + ":" + serverSocket.getLocalPort() +
+                         ", " + shards.size() + " shards");
+        
+        Thread acceptor = new Thread(this::acceptWorkers, "scan-coordinator");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        
+        boolean complete = allDone.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        finished = true;
+        serverSocket.close();
+        if (!complete) {
+            System.err.println("Scan timed out with " + (shards.size() - completed.size()) + " shards unfinished");
+        }
+        
+        List<PortScanResult> merged = new ArrayList<>(results.values());
+        merged.sort(Comparator.comparing(PortScanResult::getIp).thenComparingInt(PortScanResult::getPort));
+        return merged;
+    }
+    
+    public int getPort() {
+        ServerSocket socket = serverSocket;
+        return socket != null ? socket.getLocalPort() : port;
+    }
+    
+    public int getShardCount() { return shards.size(); }
+    public int getCompletedShards() { return completed.size(); }
+    public int getReassignedShards() { return reassigned.get(); }
+    
+    private void acceptWorkers() {
+        while (!finished) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread handler = new Thread(() -> serveWorker(socket), "scan-worker-" + socket.getRemoteSocketAddress());
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                if (!finished) {
+                    System.err.println("Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private void serveWorker(Socket socket) {
+        String worker = String.valueOf(socket.getRemoteSocketAddress());
+        Shard current = null;
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            s.setSoTimeout(workerTimeoutMillis);
+            
+            String[] hello = split(in.readLine());
+            if (hello.length < 2 || !"HELLO".equals(hello[0]) || !token.equals(hello.length > 2 ? hello[2] : "")) {
+                System.err.println("Rejected scan worker " + worker);
+                return;
+            }
+            worker = hello[1] + " (" + worker + ")";
+            System.out.println("Scan worker joined: " + worker);
+            
+            while ((current = nextShard()) != null) {
+                out.println(String.join(SEPARATOR, "SHARD", String.valueOf(current.id), current.host,
+                                        String.valueOf(current.startPort), String.valueOf(current.endPort)));
+                if (out.checkError()) {
+                    throw new IOException("connection lost");
+                }
+                readShard(in, current);
+                current = null;
+            }
+            out.println("BYE");
+        } catch (IOException | RuntimeException e) {
+            // Closed, reset, silent past the timeout or speaking nonsense
+            System.err.println("Scan worker " + worker + " lost: " + e.getMessage());
+        } finally {
+            if (current != null && !completed.contains(current.id)) {
+                reassigned.incrementAndGet();
+                pending.addFirst(current);
+            }
+        }
+    }
+    
+    // Next shard to hand out, waiting while others may still be returned by failing workers;
+    // null once everything is done
+    private Shard nextShard() {
+        while (!finished && completed.size() < shards.size()) {
+            try {
+                Shard shard = pending.poll(500, TimeUnit.MILLISECONDS);
+                if (shard != null && !completed.contains(shard.id)) {
+                    return shard;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        return null;
+    }
+    
+    private void readShard(BufferedReader in, Shard shard) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            String[] fields = split(line);
+            switch (fields[0]) {
+                case "OPEN":
+                    // Only ports of the shard this worker was given
+                    if (fields.length < 6 || Integer.parseInt(fields[1]) != shard.id || !shard.host.equals(fields[2])) {
+                        throw new IOException("unexpected " + line);
+                    }
+                    int openPort = Integer.parseInt(fields[3]);
+                    if (openPort < shard.startPort || openPort > shard.endPort) {
+                        throw new IOException("port outside shard: " + line);
+                    }
+                    PortScanResult result = new PortScanResult(fields[2], openPort, fields[4], "open", fields[5]);
+                    if (fields.length > 6 && !fields[6].isEmpty()) {
+                        result.setBanner(fields[6]);
+                    }
+                    results.putIfAbsent(result.getIp() + ":" + result.getPort() + "/" + result.getProtocol(), result);
+                    break;
+                case "DONE":
+                    if (fields.length < 2 || Integer.parseInt(fields[1]) != shard.id) {
+                        throw new IOException("unexpected " + line);
+                    }
+                    if (completed.add(shard.id)) {
+                        allDone.countDown();
+                    }
+                    return;
+                default:
+                    // BEAT: the worker is alive, the read timeout starts over
+                    break;
+            }
+        }
+        throw new EOFException("worker disconnected");
+    }
+    
+    static String[] split(String line) {
+        return line == null ? new String[0] : line.split(SEPARATOR, -1);
+    }
+    
+    // Tabs and line breaks would break the framing
+    static String clean(String value) {
+        return value == null ? "" : value.replaceAll("[\\t\\r\\n]+", " ");
+    }
+    
+    // "10.0.0.5", "192.168.1.1-254" or a comma-separated mix of both
+    public static List<String> parseHosts(String spec) {
+        List<String> hosts = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            part = part.trim();
+            int dash = part.indexOf('-');
+            int lastDot = part.lastIndexOf('.');
+            if (dash > lastDot && lastDot > 0) {
+                String prefix = part.substring(0, lastDot + 1);
+                int from = Integer.parseInt(part.substring(lastDot + 1, dash));
+                int to = Integer.parseInt(part.substring(dash + 1));
+                for (int i = from; i <= to; i++) {
+                    hosts.add(prefix + i);
+                }
+            } else if (!part.isEmpty()) {
+                hosts.add(part);
+            }
+        }
+        return hosts;
+    }
+    
+    private static final class Shard {
+        final int id;
+        final String host;
+        final int startPort;
+        final int endPort;
+        
+        Shard(int id, String host, int startPort, int endPort) {
+            this.id = id;
+            this.host = host;
+            this.startPort = startPort;
+            this.endPort = endPort;
+        }
+    }
+}
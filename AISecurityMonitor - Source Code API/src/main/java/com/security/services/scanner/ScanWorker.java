@@ -0,0 +1,102 @@
+package com.security.services.scanner;
+
+import com.security.config.APIConfig;
+import com.security.services.scanner.AdvancedPortScanner.PortScanResult;
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.*;
+
+// Worker side of distributed scanning: connects to a ScanCoordinator, probes each shard it is
+// given with its own AdvancedPortScanner and thread pool, and streams open ports back as they
+// are found. A heartbeat keeps the coordinator from reassigning long shards of filtered ports.
+public class ScanWorker {
+    private final String coordinatorHost;
+    private final int coordinatorPort;
+    private final String name;
+    private final AdvancedPortScanner scanner;
+    private final String token;
+    private final int heartbeatMillis;
+    
+    public ScanWorker(String coordinatorHost, int coordinatorPort, String name, AdvancedPortScanner scanner) {
+        APIConfig config = APIConfig.getInstance();
+        this.coordinatorHost = coordinatorHost;
+        this.coordinatorPort = coordinatorPort;
+        this.name = name;
+        this.scanner = scanner;
+        this.token = config.getScanClusterToken();
+        this.heartbeatMillis = Math.max(200, config.getScanWorkerTimeoutMillis() / 5);
+    }
+    
+    // Works until the coordinator says BYE or goes away; returns the number of shards finished
+    public int run() throws IOException {
+        ExecutorService probes = Executors.newFixedThreadPool(scanner.getThreadPoolSize());
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "scan-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int shardsDone = 0;
+        
+        try (Socket socket = new Socket(coordinatorHost, coordinatorPort);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            send(out, "HELLO", ScanCoordinator.clean(name), token);
+            heartbeat.scheduleAtFixedRate(() -> send(out, "BEAT"), heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+            
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = ScanCoordinator.split(line);
+                if ("SHARD".equals(fields[0]) && fields.length >= 5) {
+                    int probed = scanShard(probes, out, fields[1], fields[2],
+                                           Integer.parseInt(fields[3]), Integer.parseInt(fields[4]));
+                    send(out, "DONE", fields[1], String.valueOf(probed));
+                    if (out.checkError()) {
+                        throw new IOException("coordinator went away");
+                    }
+                    shardsDone++;
+                } else if ("BYE".equals(fields[0])) {
+                    break;
+                }
+            }
+        } finally {
+            heartbeat.shutdownNow();
+            probes.shutdownNow();
+        }
+        return shardsDone;
+    }
+    
+    private int scanShard(ExecutorService probes, PrintWriter out, String shard, String host,
+                          int startPort, int endPort) throws IOException {
+        CompletionService<PortScanResult> completion = new ExecutorCompletionService<>(probes);
+        int submitted = 0;
+        for (int port = startPort; port <= endPort; port++) {
+            final int currentPort = port;
+            completion.submit(() -> scanner.scanPort(host, currentPort));
+            submitted++;
+        }
+        
+        for (int i = 0; i < submitted; i++) {
+            try {
+                PortScanResult result = completion.take().get();
+                if (result != null && result.isOpen()) {
+                    send(out, "OPEN", shard, result.getIp(), String.valueOf(result.getPort()), result.getProtocol(),
+                         ScanCoordinator.clean(result.getService()), ScanCoordinator.clean(result.getBanner()));
+                }
+            } catch (ExecutionException e) {
+                // Probe failed; the port counts as closed
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("scan interrupted");
+            }
+        }
+        return submitted;
+    }
+    
+    // The shard loop and the heartbeat share the stream; whole lines only
+    private static void send(PrintWriter out, String... fields) {
+        synchronized (out) {
+            out.println(String.join(ScanCoordinator.SEPARATOR, fields));
+        }
+    }
+}
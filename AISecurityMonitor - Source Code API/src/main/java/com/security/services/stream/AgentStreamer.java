@@ -0,0 +1,240 @@
+package com.security.services.stream;
+
+import com.security.config.APIConfig;
+import com.security.models.ConnectionData;
+import com.security.models.ThreatEvent;
+import com.security.services.metrics.MetricsRegistry;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+// Agent side of fleet streaming. Callers only enqueue (never block, never do I/O); one sender
+// thread collects up to agent.batch.size events or waits agent.linger.ms, encodes them with
+// EventCodec and writes them to the collector's compressed stream. While the collector is down
+// events wait in the queue; once it is full new ones are dropped and counted. A batch that
+// failed to send is retried after reconnecting, so at most the in-flight batch is duplicated.
+public class AgentStreamer {
+    private static final long MAX_BACKOFF_MILLIS = 30000;
+    
+    private final String host;
+    private final int port;
+    private final String agentName;
+    private final String token;
+    private final int batchSize;
+    private final int lingerMillis;
+    private final BlockingQueue<Object> queue;
+    private final Thread sender;
+    private volatile boolean running = true;
+    
+    private Socket socket;
+    private CountingOutputStream wire;
+    private volatile DataOutputStream out;
+    private long backoffMillis = 500;
+    
+    private final LongAdder sent = MetricsRegistry.getInstance().counter("stream.events.sent");
+    private final LongAdder dropped = MetricsRegistry.getInstance().counter("stream.events.dropped");
+    private final LongAdder batches = MetricsRegistry.getInstance().counter("stream.batches");
+    private final LongAdder rawBytes = MetricsRegistry.getInstance().counter("stream.bytes.raw");
+    private final LongAdder wireBytes = MetricsRegistry.getInstance().counter("stream.bytes.wire");
+    
+    public AgentStreamer(String collector, String agentName) {
+        APIConfig config = APIConfig.getInstance();
+        int colon = collector.lastIndexOf(':');
+        this.host = collector.substring(0, colon);
+        this.port = Integer.parseInt(collector.substring(colon + 1));
+        this.agentName = agentName;
+        this.token = config.getStreamToken();
+        this.batchSize = config.getAgentBatchSize();
+        this.lingerMillis = config.getAgentLingerMillis();
+        this.queue = new ArrayBlockingQueue<>(config.getAgentQueueCapacity());
+        this.sender = new Thread(this::sendLoop, "agent-stream");
+        sender.setDaemon(true);
+        MetricsRegistry.getInstance().gauge("stream.queued", queue::size);
+    }
+    
+    public void start() {
+        sender.start();
+    }
+    
+    public void offer(ConnectionData connection) {
+        if (!queue.offer(connection)) {
+            dropped.increment();
+        }
+    }
+    
+    public void offerAll(List<ConnectionData> connections) {
+        for (ConnectionData connection : connections) {
+            offer(connection);
+        }
+    }
+    
+    public void offerThreat(ThreatEvent threat) {
+        if (!queue.offer(threat)) {
+            dropped.increment();
+        }
+    }
+    
+    // Sends what is queued (for up to timeoutMillis) and disconnects
+    public void close(long timeoutMillis) {
+        running = false;
+        try {
+            sender.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sender.interrupt();
+        disconnect();
+    }
+    
+    private void sendLoop() {
+        List<Object> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty() || !batch.isEmpty()) {
+            try {
+                if (batch.isEmpty() && !collect(batch)) {
+                    continue;
+                }
+                if (out == null && !connect()) {
+                    if (!running) {
+                        break;
+                    }
+                    Thread.sleep(backoffMillis);
+                    backoffMillis = Math.min(MAX_BACKOFF_MILLIS, backoffMillis * 2);
+                    continue;
+                }
+                send(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                break;
+            } catch (IOException e) {
+                System.err.println("Collector connection lost: " + e.getMessage());
+                disconnect();
+            }
+        }
+        if (!batch.isEmpty() || !queue.isEmpty()) {
+            dropped.add(batch.size() + queue.size());
+        }
+    }
+    
+    // Waits for a first event, then lingers for more until the batch is full
+    private boolean collect(List<Object> batch) throws InterruptedException {
+        Object first = queue.poll(running ? 1000 : 0, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return false;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                break;
+            }
+            Object next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next != null) {
+                batch.add(next);
+            }
+        }
+        return true;
+    }
+    
+    private void send(List<Object> batch) throws IOException {
+        List<ConnectionData> connections = new ArrayList<>(batch.size());
+        List<ThreatEvent> threats = new ArrayList<>();
+        for (Object event : batch) {
+            if (event instanceof ThreatEvent) {
+                threats.add((ThreatEvent) event);
+            } else {
+                connections.add((ConnectionData) event);
+            }
+        }
+        
+        byte[] frame = EventCodec.encode(connections, threats);
+        long before = wire.count;
+        out.write(frame);
+        out.flush();
+        
+        sent.add(batch.size());
+        batches.increment();
+        rawBytes.add(frame.length);
+        wireBytes.add(wire.count - before);
+    }
+    
+    private boolean connect() {
+        try {
+            Socket s = new Socket();
+            s.connect(new InetSocketAddress(host, port), 5000);
+            s.setTcpNoDelay(true);
+            wire = new CountingOutputStream(new BufferedOutputStream(s.getOutputStream(), 65536));
+            
+            DataOutputStream handshake = new DataOutputStream(wire);
+            handshake.writeInt(EventCodec.MAGIC);
+            handshake.writeUTF(agentName);
+            handshake.writeUTF(token);
+            
+            // Fastest level: most of the gain on this data, at a fraction of the CPU
+            DeflaterOutputStream compressed = new DeflaterOutputStream(wire, new Deflater(Deflater.BEST_SPEED), 65536, true);
+            out = new DataOutputStream(compressed);
+            out.flush();
+            socket = s;
+            backoffMillis = 500;
+            System.out.println("Streaming to collector " + host + ":" + port + " as " + agentName);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Collector " + host + ":" + port + " unavailable: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    private void disconnect() {
+        try {
+            if (socket != null) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            // Already gone
+        }
+        socket = null;
+        out = null;
+    }
+    
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("collector", host + ":" + port);
+        stats.put("connected", out != null);
+        stats.put("queued", queue.size());
+        stats.put("sent", sent.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("batches", batches.sum());
+        long raw = rawBytes.sum();
+        stats.put("compression_ratio", raw == 0 ? 0 : (double) wireBytes.sum() / raw);
+        return stats;
+    }
+    
+    // Compressed bytes actually handed to the socket
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+        
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.security.services.stream;
+
+import com.security.config.APIConfig;
+import com.security.models.ConnectionData;
+import com.security.models.ThreatEvent;
+import com.security.services.database.DatabaseService;
+import com.security.services.metrics.MetricsRegistry;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+// Central side of fleet streaming: accepts AgentStreamer connections, decodes their batches,
+// writes every batch to the collector's own database (one transaction per batch, each row
+// tagged with the agent's name) and keeps per-agent and per-source aggregates for a fleet-wide
+// view, reloaded from the database on start. A threat with more than one occurrence is an
+// update to an incident the agent already sent and goes to that row instead of a new one.
+// Anything but loopback requires stream.token, otherwise any host that reaches the port
+// could write threats.
+public class CollectorServer {
+    private final String bindAddress;
+    private final int port;
+    private final String token;
+    private final DatabaseService database;
+    private final Map<String, AgentStats> agents = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> threatSources = new ConcurrentHashMap<>();
+    private volatile ServerSocket serverSocket;
+    private volatile boolean running = false;
+    
+    private final LongAdder connectionsReceived = MetricsRegistry.getInstance().counter("collector.connections");
+    private final LongAdder threatsReceived = MetricsRegistry.getInstance().counter("collector.threats");
+    private final LongAdder threatUpdates = MetricsRegistry.getInstance().counter("collector.threat_updates");
+    
+    public CollectorServer(String bindAddress, int port, DatabaseService database) {
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.token = APIConfig.getInstance().getStreamToken();
+        this.database = database;
+        
+        // Totals survive restarts through the agent column; last-seen starts over
+        database.getAgentTotals().forEach((name, totals) -> {
+            AgentStats stats = agents.computeIfAbsent(name, AgentStats::new);
+            stats.connections.add(totals[0]);
+            stats.threats.add(totals[1]);
+        });
+        database.getAgentThreatCountsBySource().forEach((ip, count) ->
+            threatSources.computeIfAbsent(ip, i -> new LongAdder()).add(count));
+    }
+    
+    public void start() throws IOException {
+        if (token.isEmpty() && !InetAddress.getByName(bindAddress).isLoopbackAddress()) {
+            throw new IOException("stream.token must be set to listen on " + bindAddress);
+        }
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(bindAddress, port));
+        running = true;
+        Thread acceptor = new Thread(this::acceptAgents, "collector");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        System.out.println("Collector listening on " + bindAddress + ":" + serverSocket.getLocalPort());
+    }
+    
+    public void stop() {
+        running = false;
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+    
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+    
+    private void acceptAgents() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread reader = new Thread(() -> readAgent(socket), "collector-" + socket.getRemoteSocketAddress());
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Collector accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private void readAgent(Socket socket) {
+        String agent = String.valueOf(socket.getRemoteSocketAddress());
+        Inflater inflater = new Inflater();
+        try (Socket s = socket) {
+            CountingInputStream wire = new CountingInputStream(new BufferedInputStream(s.getInputStream(), 65536));
+            DataInputStream handshake = new DataInputStream(wire);
+            if (handshake.readInt() != EventCodec.MAGIC) {
+                System.err.println("Collector: not an agent stream from " + agent);
+                return;
+            }
+            String name = handshake.readUTF();
+            if (!token.equals(handshake.readUTF())) {
+                System.err.println("Collector: rejected agent " + name + " (" + agent + ")");
+                return;
+            }
+            agent = name;
+            AgentStats stats = agents.computeIfAbsent(name, AgentStats::new);
+            stats.address = String.valueOf(s.getRemoteSocketAddress());
+            System.out.println("Agent connected: " + name + " (" + stats.address + ")");
+            
+            InputStream in = new InflaterInputStream(wire, inflater, 65536);
+            List<ConnectionData> connections = new ArrayList<>();
+            List<ThreatEvent> threats = new ArrayList<>();
+            long wireSeen = wire.count;
+            while (running) {
+                long length;
+                try {
+                    length = EventCodec.readVarint(in);
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length > EventCodec.MAX_BATCH_BYTES) {
+                    throw new IOException("batch of " + length + " bytes");
+                }
+                byte[] batch = in.readNBytes((int) length);
+                if (batch.length != length) {
+                    break;
+                }
+                
+                connections.clear();
+                threats.clear();
+                EventCodec.decode(batch, connections, threats);
+                int newThreats = persist(name, connections, threats);
+                stats.record(connections.size(), newThreats, batch.length, wire.count - wireSeen);
+                wireSeen = wire.count;
+            }
+            System.out.println("Agent disconnected: " + name);
+        } catch (IOException e) {
+            System.err.println("Collector: stream from " + agent + " failed: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+    
+    // Returns how many threats were new rows rather than updates
+    private int persist(String agent, List<ConnectionData> connections, List<ThreatEvent> threats) {
+        database.logConnections(connections, agent);
+        int inserted = 0;
+        for (ThreatEvent threat : threats) {
+            if (threat.getOccurrences() > 1 && database.updateAgentThreat(threat, agent)) {
+                threatUpdates.increment();
+                continue;
+            }
+            // New incident, or an update whose first alert was dropped on the agent
+            database.logThreat(threat, agent);
+            threatSources.computeIfAbsent(threat.getSourceIp(), ip -> new LongAdder()).increment();
+            inserted++;
+        }
+        connectionsReceived.add(connections.size());
+        threatsReceived.add(inserted);
+        return inserted;
+    }
+    
+    // Sources reported as threats by the most events across all agents
+    public List<Map.Entry<String, Long>> getTopThreatSources(int limit) {
+        List<Map.Entry<String, Long>> top = new ArrayList<>();
+        threatSources.forEach((ip, count) -> top.add(new AbstractMap.SimpleEntry<>(ip, count.sum())));
+        top.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        return top.subList(0, Math.min(limit, top.size()));
+    }
+    
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("agents", agents.size());
+        stats.put("connections", connectionsReceived.sum());
+        stats.put("threats", threatsReceived.sum());
+        stats.put("threat_updates", threatUpdates.sum());
+        for (AgentStats agent : agents.values()) {
+            stats.put("agent." + agent.name, agent.toString());
+        }
+        return stats;
+    }
+    
+    private static final class AgentStats {
+        final String name;
+        volatile String address;
+        final LongAdder connections = new LongAdder();
+        final LongAdder threats = new LongAdder();
+        final LongAdder rawBytes = new LongAdder();
+        final LongAdder wireBytes = new LongAdder();
+        volatile long lastSeen;
+        
+        AgentStats(String name) {
+            this.name = name;
+        }
+        
+        void record(int connectionCount, int threatCount, int batchBytes, long batchWireBytes) {
+            connections.add(connectionCount);
+            threats.add(threatCount);
+            rawBytes.add(batchBytes);
+            wireBytes.add(batchWireBytes);
+            lastSeen = System.currentTimeMillis();
+        }
+        
+        @Override
+        public String toString() {
+            // Agents known only from the database have not connected since the collector started
+            String last = lastSeen == 0 ? "not since restart" : String.format("%tT", new Date(lastSeen));
+            return String.format("%s connections=%d threats=%d raw=%dKB wire=%dKB last=%s", address != null ? address : "-",
+                connections.sum(), threats.sum(), rawBytes.sum() / 1024, wireBytes.sum() / 1024, last);
+        }
+    }
+    
+    // Compressed bytes read from the socket
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+        
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.security.services.stream;
+
+import com.security.models.ConnectionData;
+import com.security.models.ThreatEvent;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Wire format shared by AgentStreamer and CollectorServer.
+//
+// Handshake, uncompressed: int MAGIC, then agent name and token as DataOutput UTF strings.
+// After that the whole stream is one deflate stream, sync-flushed after every batch so the
+// collector sees it at once while the compressor still learns across batches (IPs, process
+// names and states repeat constantly). Each batch is framed as a varint length followed by:
+//   varint connection count, connections..., varint threat count, threats...
+// Integers are unsigned LEB128 varints (zigzag where they can be negative), strings are a varint
+// of UTF-8 length + 1 with 0 meaning null, scores are hundredths and timestamps are deltas
+// from the previous record in the batch. A threat's occurrence count and its last-seen time
+// (a delta from its own timestamp) follow its action, so incident updates ride the same record.
+final class EventCodec {
+    static final int MAGIC = 0x41495332; // "AIS2"
+    static final int MAX_BATCH_BYTES = 16 * 1024 * 1024;
+    
+    private EventCodec() {
+    }
+    
+    // One length-prefixed frame, ready to write to the stream
+    static byte[] encode(List<ConnectionData> connections, List<ThreatEvent> threats) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 + connections.size() * 48 + threats.size() * 96);
+        long previous = 0;
+        
+        writeVarint(buffer, connections.size());
+        for (ConnectionData connection : connections) {
+            long time = connection.getTimestamp() != null ? connection.getTimestamp().getTime() : 0;
+            writeVarint(buffer, zigzag(time - previous));
+            previous = time;
+            writeString(buffer, connection.getProtocol());
+            writeString(buffer, connection.getLocalIP());
+            writeVarint(buffer, connection.getLocalPort());
+            writeString(buffer, connection.getRemoteIP());
+            writeVarint(buffer, connection.getRemotePort());
+            writeString(buffer, connection.getState());
+            writeString(buffer, connection.getStatus());
+            writeVarint(buffer, Math.round(Math.max(0, connection.getThreatScore()) * 100));
+            // The collector only stores it, as remote_host: the PTR name stands in for a domain
+            writeString(buffer, connection.getRemoteName());
+            writeString(buffer, connection.getIntelMatch());
+            writeVarint(buffer, zigzag(connection.getPid()));
+            writeString(buffer, connection.getProcessName());
+        }
+        
+        writeVarint(buffer, threats.size());
+        for (ThreatEvent threat : threats) {
+            writeVarint(buffer, zigzag(threat.getTimestamp() - previous));
+            previous = threat.getTimestamp();
+            writeString(buffer, threat.getThreatType());
+            writeString(buffer, threat.getSourceIp());
+            writeString(buffer, threat.getTargetIp());
+            writeString(buffer, threat.getDescription());
+            writeVarint(buffer, zigzag(threat.getSeverity()));
+            writeString(buffer, threat.getAction());
+            writeVarint(buffer, threat.getOccurrences());
+            writeVarint(buffer, zigzag(threat.getLastSeen() - threat.getTimestamp()));
+        }
+        
+        ByteArrayOutputStream frame = new ByteArrayOutputStream(buffer.size() + 5);
+        writeVarint(frame, buffer.size());
+        frame.writeBytes(buffer.toByteArray());
+        return frame.toByteArray();
+    }
+    
+    static void decode(byte[] batch, List<ConnectionData> connections, List<ThreatEvent> threats) throws IOException {
+        InputStream in = new ByteArrayInputStream(batch);
+        long previous = 0;
+        
+        long connectionCount = readVarint(in);
+        for (long i = 0; i < connectionCount; i++) {
+            long time = previous + unzigzag(readVarint(in));
+            previous = time;
+            String protocol = readString(in);
+            String localIP = readString(in);
+            int localPort = (int) readVarint(in);
+            String remoteIP = readString(in);
+            int remotePort = (int) readVarint(in);
+            ConnectionData connection = new ConnectionData(protocol, localIP, remoteIP, localPort, remotePort, readString(in));
+            connection.setTimestamp(new Date(time));
+            connection.setStatus(readString(in));
+            connection.setThreatScore(readVarint(in) / 100.0);
+            connection.setRemoteDomain(readString(in));
+            connection.setIntelMatch(readString(in));
+            connection.setPid((int) unzigzag(readVarint(in)));
+            connection.setProcessName(readString(in));
+            connections.add(connection);
+        }
+        
+        long threatCount = readVarint(in);
+        for (long i = 0; i < threatCount; i++) {
+            long time = previous + unzigzag(readVarint(in));
+            previous = time;
+            String type = readString(in);
+            String source = readString(in);
+            String target = readString(in);
+            String description = readString(in);
+            int severity = (int) unzigzag(readVarint(in));
+            String action = readString(in);
+            int occurrences = (int) readVarint(in);
+            long lastSeen = time + unzigzag(readVarint(in));
+            threats.add(new ThreatEvent(time, type, source, target, description, severity, action, occurrences, lastSeen));
+        }
+    }
+    
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+    
+    static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+    
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            writeVarint(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length + 1L);
+        out.write(bytes, 0, bytes.length);
+    }
+    
+    private static String readString(InputStream in) throws IOException {
+        long length = readVarint(in);
+        if (length == 0) {
+            return null;
+        }
+        if (length - 1 > in.available()) {
+            throw new EOFException("string past end of batch");
+        }
+        byte[] bytes = new byte[(int) (length - 1)];
+        if (in.read(bytes) != bytes.length) {
+            throw new EOFException();
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+    
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
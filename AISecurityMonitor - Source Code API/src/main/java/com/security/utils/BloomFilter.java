@@ -0,0 +1,76 @@
+package com.security.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Set membership with no false negatives and a tunable false-positive rate. Sized for an
+// expected number of insertions: m = -n ln p / (ln 2)^2 bits and k = m/n ln 2 probes, taken
+// by double hashing one 64-bit hash. Thread-safe; adds set bits with CAS.
+public class BloomFilter {
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashes;
+    private final LongAdder insertions = new LongAdder();
+    
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) / 64));
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = words * 64L;
+        this.hashes = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+    
+    public void add(String value) {
+        long hash = hash(value);
+        long step = (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(hash + i * step, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = bits.get(word)) & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                // Another bit in the word changed; retry
+            }
+        }
+        insertions.increment();
+    }
+    
+    // false means definitely never added
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        long step = (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(hash + i * step, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    // FNV-1a over the chars, then a murmur3 finalizer to spread the bits
+    private static long hash(String value) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB93FE1A85EC5L;
+        h ^= h >>> 33;
+        return h;
+    }
+    
+    // False-positive rate expected at the current fill: (1 - e^(-kn/m))^k
+    public double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-hashes * (double) insertions.sum() / bitCount), hashes);
+    }
+    
+    public long getInsertions() { return insertions.sum(); }
+    public long getBitCount() { return bitCount; }
+    public int getHashCount() { return hashes; }
+}
@@ -0,0 +1,308 @@
+package com.security.utils;
+
+import com.security.config.APIConfig;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.*;
+
+// Answers "what kind of address is this" with one lookup. Built-in special-purpose ranges
+// (RFC 1918, loopback, CGNAT, link-local, multicast, IPv6 ULA, ...) and the user's allow/deny
+// lists are flattened once into sorted, non-overlapping intervals, each carrying the OR of
+// the flags of every range covering it; a lookup is a binary search over ~100 boundaries.
+// Everything lives in one 128-bit space, with IPv4 mapped into ::ffff:0:0/96.
+public final class IpRangeClassifier {
+    public static final int PRIVATE = 1;           // RFC 1918, IPv6 unique local
+    public static final int LOOPBACK = 1 << 1;
+    public static final int LINK_LOCAL = 1 << 2;
+    public static final int CGNAT = 1 << 3;        // 100.64.0.0/10
+    public static final int MULTICAST = 1 << 4;
+    public static final int BROADCAST = 1 << 5;
+    public static final int UNSPECIFIED = 1 << 6;  // 0.0.0.0/8, ::
+    public static final int RESERVED = 1 << 7;     // Documentation, benchmarking, 240/4
+    public static final int ALLOWLIST = 1 << 8;
+    public static final int DENYLIST = 1 << 9;
+    public static final int INVALID = 1 << 10;     // Not an IP literal
+    
+    // Never routed to the internet: nothing there for threat intel to know about
+    public static final int LOCAL = PRIVATE | LOOPBACK | LINK_LOCAL | CGNAT | MULTICAST | BROADCAST | UNSPECIFIED;
+    
+    private static final long V4_MAPPED_HI = 0L;
+    private static final long V4_MAPPED_LO = 0x0000FFFF00000000L;
+    
+    private static final Object[][] SPECIAL_RANGES = {
+        {"10.0.0.0/8", PRIVATE},
+        {"172.16.0.0/12", PRIVATE},
+        {"192.168.0.0/16", PRIVATE},
+        {"127.0.0.0/8", LOOPBACK},
+        {"169.254.0.0/16", LINK_LOCAL},
+        {"100.64.0.0/10", CGNAT},
+        {"224.0.0.0/4", MULTICAST},
+        {"255.255.255.255/32", BROADCAST},
+        {"0.0.0.0/8", UNSPECIFIED},
+        {"192.0.2.0/24", RESERVED},
+        {"198.51.100.0/24", RESERVED},
+        {"203.0.113.0/24", RESERVED},
+        {"198.18.0.0/15", RESERVED},
+        {"240.0.0.0/4", RESERVED},
+        {"::/128", UNSPECIFIED},
+        {"::1/128", LOOPBACK},
+        {"fc00::/7", PRIVATE},
+        {"fe80::/10", LINK_LOCAL},
+        {"ff00::/8", MULTICAST},
+        {"2001:db8::/32", RESERVED},
+    };
+    
+    private static IpRangeClassifier instance;
+    
+    // Interval i covers [start(i), start(i + 1)) and has flags[i]
+    private final long[] startHi;
+    private final long[] startLo;
+    private final int[] flags;
+    
+    public static synchronized IpRangeClassifier getInstance() {
+        if (instance == null) {
+            APIConfig config = APIConfig.getInstance();
+            instance = new IpRangeClassifier(config.getIpAllowlist(), config.getIpDenylist());
+        }
+        return instance;
+    }
+    
+    // allow and deny hold addresses or CIDR blocks, IPv4 or IPv6; bad entries are skipped
+    public IpRangeClassifier(Collection<String> allow, Collection<String> deny) {
+        List<Range> ranges = new ArrayList<>();
+        for (Object[] special : SPECIAL_RANGES) {
+            ranges.add(parseCidr((String) special[0], (Integer) special[1]));
+        }
+        addAll(ranges, allow, ALLOWLIST);
+        addAll(ranges, deny, DENYLIST);
+        
+        // Sweep over range starts and ends, tracking how many ranges hold each flag bit
+        List<long[]> events = new ArrayList<>(ranges.size() * 2);
+        for (Range range : ranges) {
+            events.add(new long[] {range.startHi, range.startLo, range.flag});
+            if (!(range.endHi == -1L && range.endLo == -1L)) {
+                long lo = range.endLo + 1;
+                long hi = lo == 0 ? range.endHi + 1 : range.endHi;
+                events.add(new long[] {hi, lo, -range.flag});
+            }
+        }
+        events.sort(IpRangeClassifier::compareEvents);
+        
+        int[] active = new int[32];
+        List<long[]> intervals = new ArrayList<>();
+        intervals.add(new long[] {0, 0, 0});
+        for (int i = 0; i < events.size(); ) {
+            long hi = events.get(i)[0];
+            long lo = events.get(i)[1];
+            for (; i < events.size() && events.get(i)[0] == hi && events.get(i)[1] == lo; i++) {
+                long flag = events.get(i)[2];
+                active[Integer.numberOfTrailingZeros((int) Math.abs(flag))] += flag > 0 ? 1 : -1;
+            }
+            int current = 0;
+            for (int bit = 0; bit < active.length; bit++) {
+                if (active[bit] > 0) {
+                    current |= 1 << bit;
+                }
+            }
+            long[] last = intervals.get(intervals.size() - 1);
+            if (last[0] == hi && last[1] == lo) {
+                last[2] = current;
+            } else if (last[2] != current) {
+                intervals.add(new long[] {hi, lo, current});
+            }
+        }
+        
+        startHi = new long[intervals.size()];
+        startLo = new long[intervals.size()];
+        flags = new int[intervals.size()];
+        for (int i = 0; i < intervals.size(); i++) {
+            startHi[i] = intervals.get(i)[0];
+            startLo[i] = intervals.get(i)[1];
+            flags[i] = (int) intervals.get(i)[2];
+        }
+    }
+    
+    // Flags for a dotted IPv4 or IPv6 literal; INVALID for anything else (host names included)
+    public int classify(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            return INVALID;
+        }
+        if (ip.indexOf(':') < 0) {
+            long v4 = parseIPv4(ip);
+            return v4 < 0 ? INVALID : classify((int) v4);
+        }
+        long[] v6 = parseIPv6(ip);
+        return v6 == null ? INVALID : lookup(v6[0], v6[1]);
+    }
+    
+    // ip as returned by PacketDecoder: big-endian in an int
+    public int classify(int ip) {
+        return lookup(V4_MAPPED_HI, V4_MAPPED_LO | (ip & 0xFFFFFFFFL));
+    }
+    
+    public boolean isLocal(String ip) {
+        return (classify(ip) & LOCAL) != 0;
+    }
+    
+    public boolean isLocal(int ip) {
+        return (classify(ip) & LOCAL) != 0;
+    }
+    
+    public int size() { return flags.length; }
+    
+    private int lookup(long hi, long lo) {
+        int low = 0;
+        int high = flags.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            int cmp = compare(startHi[mid], startLo[mid], hi, lo);
+            if (cmp <= 0) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return flags[low];
+    }
+    
+    private static int compare(long aHi, long aLo, long bHi, long bLo) {
+        int cmp = Long.compareUnsigned(aHi, bHi);
+        return cmp != 0 ? cmp : Long.compareUnsigned(aLo, bLo);
+    }
+    
+    private static int compareEvents(long[] a, long[] b) {
+        return compare(a[0], a[1], b[0], b[1]);
+    }
+    
+    private static void addAll(List<Range> ranges, Collection<String> entries, int flag) {
+        if (entries == null) {
+            return;
+        }
+        for (String entry : entries) {
+            Range range = parseCidr(entry.trim(), flag);
+            if (range != null) {
+                ranges.add(range);
+            } else if (!entry.trim().isEmpty()) {
+                System.err.println("Ignoring invalid IP range: " + entry);
+            }
+        }
+    }
+    
+    private static Range parseCidr(String cidr, int flag) {
+        int slash = cidr.indexOf('/');
+        String address = slash < 0 ? cidr : cidr.substring(0, slash);
+        long hi;
+        long lo;
+        int maxBits;
+        if (address.indexOf(':') < 0) {
+            long v4 = parseIPv4(address);
+            if (v4 < 0) {
+                return null;
+            }
+            hi = V4_MAPPED_HI;
+            lo = V4_MAPPED_LO | v4;
+            maxBits = 32;
+        } else {
+            long[] v6 = parseIPv6(address);
+            if (v6 == null) {
+                return null;
+            }
+            hi = v6[0];
+            lo = v6[1];
+            maxBits = 128;
+        }
+        int bits;
+        try {
+            bits = slash < 0 ? maxBits : Integer.parseInt(cidr.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (bits < 0 || bits > maxBits) {
+            return null;
+        }
+        
+        // Host bits, counted from the low end of the 128-bit value
+        int hostBits = maxBits - bits;
+        long maskHi = hostBits > 64 ? (hostBits >= 128 ? -1L : (1L << (hostBits - 64)) - 1) : 0;
+        long maskLo = hostBits >= 64 ? -1L : (1L << hostBits) - 1;
+        return new Range(hi & ~maskHi, lo & ~maskLo, hi | maskHi, lo | maskLo, flag);
+    }
+    
+    // Unsigned value, or -1 if not a dotted quad (null included)
+    public static long parseIPv4(String ip) {
+        if (ip == null) {
+            return -1;
+        }
+        long value = 0;
+        int octets = 0;
+        int octet = -1;
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && octet >= 0 && octets < 3) {
+                value = (value << 8) | octet;
+                octets++;
+                octet = -1;
+            } else {
+                return -1;
+            }
+        }
+        if (octet < 0 || octets != 3) {
+            return -1;
+        }
+        return (value << 8) | octet;
+    }
+    
+    // High and low 64 bits, or null. IPv4 results come back already mapped.
+    private static long[] parseIPv6(String ip) {
+        String literal = ip;
+        if (literal.startsWith("[") && literal.endsWith("]")) {
+            literal = literal.substring(1, literal.length() - 1);
+        }
+        int zone = literal.indexOf('%');
+        if (zone >= 0) {
+            literal = literal.substring(0, zone);
+        }
+        if (literal.indexOf(':') < 0) {
+            return null;
+        }
+        try {
+            // A literal containing ':' is parsed locally, never resolved
+            InetAddress address = InetAddress.getByName(literal);
+            byte[] bytes = address.getAddress();
+            if (address instanceof Inet4Address) {
+                long v4 = ((bytes[0] & 0xFFL) << 24) | ((bytes[1] & 0xFFL) << 16) | ((bytes[2] & 0xFFL) << 8) | (bytes[3] & 0xFFL);
+                return new long[] {V4_MAPPED_HI, V4_MAPPED_LO | v4};
+            }
+            long hi = 0;
+            long lo = 0;
+            for (int i = 0; i < 8; i++) {
+                hi = (hi << 8) | (bytes[i] & 0xFF);
+                lo = (lo << 8) | (bytes[i + 8] & 0xFF);
+            }
+            return new long[] {hi, lo};
+        } catch (Exception e) {
+            return null;
+        }
+    }
+    
+    private static final class Range {
+        final long startHi;
+        final long startLo;
+        final long endHi;
+        final long endLo;
+        final int flag;
+        
+        Range(long startHi, long startLo, long endHi, long endLo, int flag) {
+            this.startHi = startHi;
+            this.startLo = startLo;
+            this.endHi = endHi;
+            this.endLo = endLo;
+            this.flag = flag;
+        }
+    }
+}
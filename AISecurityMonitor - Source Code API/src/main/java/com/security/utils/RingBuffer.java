@@ -0,0 +1,85 @@
+package com.security.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Fixed-capacity history that keeps the most recent items. Writers claim a sequence number
+// and overwrite the oldest slot; nothing is allocated or locked on add(). Each slot also
+// records the sequence it holds, cleared while the item is being replaced, so readers can
+// tell a stable slot from one that was overwritten under them and skip it. A writer a full
+// lap ahead waits for the slot's previous write to be published before taking it over, so two
+// writes to one slot never interleave and the newer item is never lost.
+public class RingBuffer<T> {
+    private static final long EMPTY = -1;
+    private static final long WRITING = -2;
+    
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<T> items;
+    private final AtomicLongArray published;
+    private final AtomicLong sequence = new AtomicLong();
+    
+    // Capacity is rounded up to a power of two
+    public RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.items = new AtomicReferenceArray<>(size);
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, EMPTY);
+        }
+    }
+    
+    public void add(T item) {
+        long seq = sequence.getAndIncrement();
+        int slot = (int) (seq & mask);
+        long previous = seq < capacity ? EMPTY : seq - capacity;
+        // Only contended when writers lap each other; yield so a descheduled writer can finish
+        for (int spins = 0; !published.compareAndSet(slot, previous, WRITING); spins++) {
+            if (spins < 64) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        items.set(slot, item);
+        published.set(slot, seq);
+    }
+    
+    // Up to limit of the newest items, oldest first; empty for a limit of 0 or less
+    public List<T> snapshot(int limit) {
+        long end = sequence.get();
+        long start = Math.max(0, end - Math.max(0, Math.min(limit, capacity)));
+        List<T> result = new ArrayList<>((int) (end - start));
+        for (long seq = start; seq < end; seq++) {
+            T item = read(seq);
+            if (item != null) {
+                result.add(item);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+    
+    public List<T> snapshot() {
+        return snapshot(capacity);
+    }
+    
+    // The item written with this sequence, or null if it is not (or no longer) in its slot
+    private T read(long seq) {
+        int slot = (int) (seq & mask);
+        if (published.get(slot) != seq) {
+            return null;
+        }
+        T item = items.get(slot);
+        return published.get(slot) == seq ? item : null;
+    }
+    
+    public int size() { return (int) Math.min(sequence.get(), capacity); }
+    public int capacity() { return capacity; }
+    public long getTotalAdded() { return sequence.get(); }
+}
@@ -0,0 +1,72 @@
+package com.security.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Bounded LRU cache where every entry carries its own expiry time
+public class TTLCache<K, V> {
+    private final int maxEntries;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private long hits = 0;
+    private long misses = 0;
+    
+    public TTLCache(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > TTLCache.this.maxEntries;
+            }
+        };
+    }
+    
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key);
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+    
+    public synchronized void put(K key, V value, long ttlMillis) {
+        entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+    }
+    
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+    
+    public synchronized void clear() {
+        entries.clear();
+    }
+    
+    // Drops expired entries; LRU eviction alone only happens on insert
+    public synchronized int purgeExpired() {
+        long now = System.currentTimeMillis();
+        int before = entries.size();
+        entries.values().removeIf(entry -> entry.expiresAt <= now);
+        return before - entries.size();
+    }
+    
+    public synchronized int size() { return entries.size(); }
+    public int getMaxEntries() { return maxEntries; }
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    
+    private static class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+        
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}